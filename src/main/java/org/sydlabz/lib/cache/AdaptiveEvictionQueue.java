@@ -0,0 +1,124 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+/**
+ * Adaptive replacement (ARC) ordering for a single bucket.
+ * <p>
+ * Resident records live either in the recency segment (seen once) or in the frequency segment (seen again).
+ * Keys evicted from each segment are remembered in a ghost list; a hit on a ghost moves the recency target
+ * towards the segment that would have kept the key. Ghost lists together hold at most {@code ghostRatio}
+ * times the number of resident records.
+ * <p>
+ * The frequency segment is access-ordered, so a hit on a record already in it moves the record without allocating.
+ */
+final class AdaptiveEvictionQueue extends EvictionPolicy {
+    private final LinkedHashMap<String, Cached> recencySegment;
+    private final LinkedHashMap<String, Cached> frequencySegment;
+    private final LinkedHashSet<String> recencyGhosts;
+    private final LinkedHashSet<String> frequencyGhosts;
+    private final double ghostRatio;
+
+    private int recencyTarget;
+
+    AdaptiveEvictionQueue(final double ghostRatio) {
+        this.recencySegment = new LinkedHashMap<>();
+        this.frequencySegment = new LinkedHashMap<>(16, 0.75f, true);
+        this.recencyGhosts = new LinkedHashSet<>();
+        this.frequencyGhosts = new LinkedHashSet<>();
+        this.ghostRatio = ghostRatio;
+        this.recencyTarget = 0;
+    }
+
+    @Override
+    synchronized void offer(final Cached cachedRecord) {
+        String recordKey = cachedRecord.getRecordKey();
+
+        if (this.recencyGhosts.contains(recordKey)) {
+            int delta = Math.max(1, this.frequencyGhosts.size() / this.recencyGhosts.size());
+
+            this.recencyGhosts.remove(recordKey);
+            this.recencyTarget = Math.min(this.recencyTarget + delta, this.residentSize() + 1);
+            this.frequencySegment.put(recordKey, cachedRecord);
+        } else if (this.frequencyGhosts.contains(recordKey)) {
+            int delta = Math.max(1, this.recencyGhosts.size() / this.frequencyGhosts.size());
+
+            this.frequencyGhosts.remove(recordKey);
+            this.recencyTarget = Math.max(this.recencyTarget - delta, 0);
+            this.frequencySegment.put(recordKey, cachedRecord);
+        } else {
+            this.recencySegment.put(recordKey, cachedRecord);
+        }
+    }
+
+    @Override
+    synchronized void access(final Cached cachedRecord) {
+        String recordKey = cachedRecord.getRecordKey();
+
+        if (this.frequencySegment.containsKey(recordKey)) {
+            this.frequencySegment.put(recordKey, cachedRecord);
+        } else if (this.recencySegment.remove(recordKey) != null) {
+            this.frequencySegment.put(recordKey, cachedRecord);
+        } else {
+            this.offer(cachedRecord);
+        }
+    }
+
+    @Override
+    synchronized void remove(final Cached cachedRecord) {
+        this.remove(cachedRecord.getRecordKey());
+    }
+
+    @Override
+    synchronized void remove(final String recordKey) {
+        if (this.recencySegment.remove(recordKey) == null) {
+            this.frequencySegment.remove(recordKey);
+        }
+    }
+
+    @Override
+    synchronized Cached poll() {
+        Cached evictedCachedRecord;
+
+        if (!this.recencySegment.isEmpty() && (this.recencySegment.size() > this.recencyTarget || this.frequencySegment.isEmpty())) {
+            evictedCachedRecord = pollEldest(this.recencySegment);
+            this.recencyGhosts.add(evictedCachedRecord.getRecordKey());
+        } else if (!this.frequencySegment.isEmpty()) {
+            evictedCachedRecord = pollEldest(this.frequencySegment);
+            this.frequencyGhosts.add(evictedCachedRecord.getRecordKey());
+        } else {
+            return null;
+        }
+
+        this.trimGhosts();
+
+        return evictedCachedRecord;
+    }
+
+    private void trimGhosts() {
+        int ghostLimit = Math.max(1, (int) Math.ceil(this.residentSize() * this.ghostRatio));
+
+        while (this.recencyGhosts.size() + this.frequencyGhosts.size() > ghostLimit) {
+            LinkedHashSet<String> ghosts = this.recencyGhosts.size() >= this.frequencyGhosts.size() ? this.recencyGhosts : this.frequencyGhosts;
+            Iterator<String> iterator = ghosts.iterator();
+
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private int residentSize() {
+        return this.recencySegment.size() + this.frequencySegment.size();
+    }
+
+    private static Cached pollEldest(final LinkedHashMap<String, Cached> segment) {
+        Iterator<Cached> iterator = segment.values().iterator();
+        Cached eldest = iterator.next();
+
+        iterator.remove();
+
+        return eldest;
+    }
+}
@@ -1,20 +1,41 @@
 package org.sydlabz.lib.cache;
 
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 final class Bucket {
+    private static final int SAMPLED_REGIONS = 4;
+
     private final DataStore dataStore;
     private final transient CacheConfiguration cacheConfiguration;
-    private final transient DataSource dataSource;
-    private final EvictionQueue evictionQueue;
+    private final transient LoadCoordinator loadCoordinator;
+    private final EvictionPolicy evictionQueue;
+    private final transient RemovalDispatcher removalDispatcher;
+    private final transient EntryIndex entryIndex;
+
+    private volatile long evictionCount;
 
-    Bucket(final CacheConfiguration cacheConfiguration, final DataSource dataSource) {
+    Bucket(final CacheConfiguration cacheConfiguration, final LoadCoordinator loadCoordinator, final RemovalDispatcher removalDispatcher, final EntryIndex entryIndex) {
         this.dataStore = new DataStore();
         this.cacheConfiguration = cacheConfiguration;
-        this.dataSource = dataSource;
-        this.evictionQueue = new EvictionQueue(cacheConfiguration.getEvictionStrategy());
+        this.loadCoordinator = loadCoordinator;
+        this.removalDispatcher = removalDispatcher;
+        this.entryIndex = entryIndex;
+        this.evictionQueue = EvictionPolicy.of(cacheConfiguration, this.dataStore);
+    }
+
+    /**
+     * @return the number of records evicted from the bucket, counted while it is locked.
+     */
+    long getEvictionCount() {
+        return this.evictionCount;
     }
 
     int size() {
@@ -26,67 +47,77 @@ final class Bucket {
     }
 
     public synchronized void doInvalidate(final long currentTime, BucketMap bucketMap) {
-        Iterator<Map.Entry<String, Cached>> iterator = this.dataStore.entrySet().iterator();
+        Iterator<Cached> iterator = this.dataStore.iterator();
         int sizeBefore = this.dataStore.size();
 
         while (iterator.hasNext()) {
-            invalidateRecord(currentTime, iterator);
+            invalidateRecord(currentTime, iterator, bucketMap);
         }
 
         bucketMap.decrementCountBy(sizeBefore - this.dataStore.size());
     }
 
-    private void invalidateRecord(final long currentTime, final Iterator<Map.Entry<String, Cached>> iterator) {
-        Map.Entry<String, Cached> cachedRecordEntry = iterator.next();
-        Cached cachedRecord = cachedRecordEntry.getValue();
+    /**
+     * Expired records are removed, except under {@link InvalidationStrategy#REFRESH} where they keep being served
+     * while they are reloaded in the background, off the bucket lock. A record that could not be refreshed within
+     * the grace period, or within one more life time without one, is removed all the same.
+     */
+    private void invalidateRecord(final long currentTime, final Iterator<Cached> iterator, final BucketMap bucketMap) {
+        Cached cachedRecord = iterator.next();
         InvalidationStrategy invalidationStrategy = this.cacheConfiguration.getInvalidationStrategy();
+        long invalidationLifeTime = this.cacheConfiguration.getInvalidationLifeTime();
+        long staleGracePeriod = this.cacheConfiguration.getStaleGracePeriod();
 
         if (InvalidationStrategy.TIME_TO_LIVE == invalidationStrategy) {
-            if (currentTime - cachedRecord.getCreatedTime() > this.cacheConfiguration.getInvalidationLifeTime()) {
-                this.evictionQueue.remove(cachedRecord);
-                iterator.remove();
+            if (currentTime - cachedRecord.getCreatedTime() > invalidationLifeTime + staleGracePeriod) {
+                this.expire(cachedRecord, iterator);
             }
         } else if (InvalidationStrategy.TIME_BASED == invalidationStrategy) {
-            if (currentTime - cachedRecord.getLastAccessedTime() > this.cacheConfiguration.getInvalidationLifeTime()) {
-                this.evictionQueue.remove(cachedRecord);
-                iterator.remove();
+            if (currentTime - cachedRecord.getLastAccessedTime() > invalidationLifeTime) {
+                this.expire(cachedRecord, iterator);
             }
         } else if (InvalidationStrategy.REFRESH == invalidationStrategy) {
-            if (currentTime - cachedRecord.getCreatedTime() > cacheConfiguration.getInvalidationLifeTime()) {
-                String recordKey = cachedRecordEntry.getKey();
+            long age = currentTime - cachedRecord.getCreatedTime();
 
-                this.evictionQueue.remove(cachedRecord);
-                iterator.remove();
+            if (age > invalidationLifeTime + (staleGracePeriod > 0 ? staleGracePeriod : invalidationLifeTime)) {
+                this.expire(cachedRecord, iterator);
+            } else if (age > invalidationLifeTime) {
+                String recordKey = cachedRecord.getRecordKey();
 
-                Cacheable data = this.dataSource.load(recordKey);
-
-                if (!Util.isUsable(data) && !this.cacheConfiguration.isCacheNullValues()) {
-                    return;
-                }
-
-                Cached freshRecord = new Cached(recordKey, data);
-
-                freshRecord.setAccessCount(cachedRecord.getAccessCount() + 1);
-                this.evictionQueue.offer(freshRecord);
-                this.dataStore.put(recordKey, freshRecord);
+                this.loadCoordinator.reload(recordKey, data -> bucketMap.refresh(recordKey, data));
             }
         }
     }
 
+    private void expire(final Cached cachedRecord, final Iterator<Cached> iterator) {
+        this.evictionQueue.remove(cachedRecord);
+        iterator.remove();
+        this.recordRemoval(cachedRecord, RemovalCause.EXPIRED);
+    }
+
     Cached getAndUpdate(final String recordKey) {
         Cached cachedRecord = this.dataStore.get(recordKey);
 
         if (Util.isUsable(cachedRecord)) {
-            cachedRecord.incrementAccessCount();
-            cachedRecord.setLastAccessedTime();
+            cachedRecord.recordAccess();
 
-            this.evictionQueue.remove(cachedRecord);
-            this.evictionQueue.offer(cachedRecord);
+            this.evictionQueue.access(cachedRecord);
         }
 
         return cachedRecord;
     }
 
+    /**
+     * Counts accesses to a record read without going through the bucket, unless the record left the bucket meanwhile.
+     */
+    void access(final Cached cachedRecord, final int accessCount) {
+        if (this.dataStore.get(cachedRecord.getRecordKey()) == cachedRecord) {
+            cachedRecord.recordAccesses(accessCount);
+
+            this.evictionQueue.access(cachedRecord);
+        }
+    }
+
     public Cached getOnly(String recordKey) {
         return this.dataStore.get(recordKey);
     }
@@ -94,29 +125,271 @@ final class Bucket {
     synchronized void put(final String recordKey, final Cached cachedRecord, final AtomicLong cachedRecordsCount) {
         int sizeBefore = this.size();
 
-        this.dataStore.put(recordKey, cachedRecord);
+        Cached previousRecord = this.dataStore.put(recordKey, cachedRecord);
 
-        this.evictionQueue.remove(cachedRecord);
-        this.evictionQueue.offer(cachedRecord);
+        if (Util.isUsable(previousRecord)) {
+            this.evictionQueue.replace(previousRecord, cachedRecord);
+            this.recordRemoval(previousRecord, RemovalCause.REPLACED);
+        } else {
+            this.evictionQueue.offer(cachedRecord);
+        }
+
+        this.entryIndex.onInsert(cachedRecord);
 
         cachedRecordsCount.getAndAdd(this.size() - sizeBefore);
     }
 
+    /**
+     * Replaces the data of the cached record in place, keeping its tags, so that an update allocates no record.
+     *
+     * @return the updated record, null if the key is absent.
+     */
+    synchronized Cached update(final String recordKey, final Cacheable data) {
+        Cached currentRecord = this.dataStore.get(recordKey);
+
+        if (!Util.isUsable(currentRecord)) {
+            return null;
+        }
+
+        this.recordRemoval(currentRecord, RemovalCause.REPLACED);
+        currentRecord.update(data);
+        this.evictionQueue.access(currentRecord);
+        this.entryIndex.onInsert(currentRecord);
+
+        return currentRecord;
+    }
+
+    /**
+     * Inserts the records whose key is absent, for as long as the cache stays within its capacity.
+     *
+     * @return the number of inserted records.
+     */
+    synchronized int putAll(final List<Cached> cachedRecords, final AtomicLong cachedRecordsCount, final long capacity) {
+        int insertedCount = 0;
+
+        for (Cached cachedRecord : cachedRecords) {
+            if (Util.isUsable(this.dataStore.get(cachedRecord.getRecordKey()))) {
+                continue;
+            }
+
+            if (cachedRecordsCount.incrementAndGet() > capacity) {
+                cachedRecordsCount.decrementAndGet();
+
+                break;
+            }
+
+            this.dataStore.put(cachedRecord.getRecordKey(), cachedRecord);
+            this.evictionQueue.offer(cachedRecord);
+            this.entryIndex.onInsert(cachedRecord);
+            insertedCount++;
+        }
+
+        return insertedCount;
+    }
+
+    synchronized Mutation compute(final String recordKey, final Remapping remapping, final AtomicLong cachedRecordsCount) {
+        Cached currentRecord = this.dataStore.get(recordKey);
+        boolean present = Util.isUsable(currentRecord);
+        Cacheable data = remapping.remap(currentRecord);
+
+        if (data == Remapping.UNCHANGED || (present && Util.isUsable(data) && Objects.equals(currentRecord.getCachedData(), data))) {
+            if (present) {
+                currentRecord.recordAccess();
+                this.evictionQueue.access(currentRecord);
+            }
+
+            return new Mutation(currentRecord, present, false);
+        }
+
+        if (!Util.isUsable(data)) {
+            if (present) {
+                this.evictionQueue.remove(currentRecord);
+                this.dataStore.remove(recordKey);
+                cachedRecordsCount.getAndAdd(-1);
+                this.recordRemoval(currentRecord, RemovalCause.EXPLICIT);
+            }
+
+            return new Mutation(null, present, present);
+        }
+
+        if (present) {
+            this.recordRemoval(currentRecord, RemovalCause.REPLACED);
+            currentRecord.update(data);
+            this.evictionQueue.access(currentRecord);
+            this.entryIndex.onInsert(currentRecord);
+
+            return new Mutation(currentRecord, true, true);
+        }
+
+        Cached freshRecord = new Cached(recordKey, data);
+
+        this.dataStore.put(recordKey, freshRecord);
+        this.evictionQueue.offer(freshRecord);
+        this.entryIndex.onInsert(freshRecord);
+        cachedRecordsCount.getAndAdd(1);
+
+        return new Mutation(freshRecord, false, true);
+    }
+
+    synchronized void refresh(final String recordKey, final Cacheable data, final AtomicLong cachedRecordsCount) {
+        Cached currentRecord = this.dataStore.get(recordKey);
+
+        if (!Util.isUsable(currentRecord)) {
+            return;
+        }
+
+        if (!Util.isUsable(data) && !this.cacheConfiguration.isCacheNullValues()) {
+            this.evictionQueue.remove(currentRecord);
+            this.dataStore.remove(recordKey);
+            cachedRecordsCount.getAndAdd(-1);
+            this.recordRemoval(currentRecord, RemovalCause.EXPIRED);
+        } else if (Objects.equals(currentRecord.getCachedData(), data)) {
+            currentRecord.renew();
+            this.evictionQueue.access(currentRecord);
+        } else {
+            this.recordRemoval(currentRecord, RemovalCause.REPLACED);
+            currentRecord.update(data);
+            this.evictionQueue.access(currentRecord);
+            this.entryIndex.onInsert(currentRecord);
+        }
+    }
+
     synchronized void remove(final String recordKey, final AtomicLong cachedRecordsCount) {
         int sizeBefore = this.size();
+        Cached removedRecord = this.dataStore.remove(recordKey);
 
-        this.evictionQueue.remove(recordKey);
+        if (Util.isUsable(removedRecord)) {
+            this.evictionQueue.remove(removedRecord);
+            this.recordRemoval(removedRecord, RemovalCause.EXPLICIT);
+        }
 
-        this.dataStore.remove(recordKey);
         cachedRecordsCount.getAndAdd(this.size() - sizeBefore);
     }
 
+    synchronized long removeIf(final BiPredicate<String, Cacheable> predicate, final AtomicLong cachedRecordsCount) {
+        Iterator<Cached> iterator = this.dataStore.iterator();
+        long removedCount = 0L;
+
+        while (iterator.hasNext()) {
+            Cached cachedRecord = iterator.next();
+
+            if (predicate.test(cachedRecord.getRecordKey(), cachedRecord.getCachedData())) {
+                this.evictionQueue.remove(cachedRecord);
+                iterator.remove();
+                this.recordRemoval(cachedRecord, RemovalCause.EXPLICIT);
+                removedCount++;
+            }
+        }
+
+        cachedRecordsCount.getAndAdd(-removedCount);
+
+        return removedCount;
+    }
+
+    synchronized void index(final EntryIndex targetIndex) {
+        for (Cached cachedRecord : this.dataStore) {
+            targetIndex.onInsert(cachedRecord);
+        }
+    }
+
+    private void recordRemoval(final Cached cachedRecord, final RemovalCause removalCause) {
+        if (RemovalCause.EVICTED == removalCause) {
+            this.evictionCount++;
+        }
+
+        this.entryIndex.onRemove(cachedRecord);
+        this.removalDispatcher.record(cachedRecord, removalCause);
+    }
+
+    Spliterator<Cached> spliterator() {
+        return this.dataStore.spliterator();
+    }
+
+    /**
+     * Evicts the worst of up to {@code sampleSize} records accepted by the filter, read from a few random regions of
+     * the bucket of about {@code scanLimit} records. Records of a key range tend to sit next to each other, so if
+     * the regions hold no accepted record the whole bucket is scanned.
+     *
+     * @return true if a record was evicted.
+     */
+    synchronized boolean evictSampled(final Predicate<Cached> filter, final Comparator<Cached> comparator, final int sampleSize, final int scanLimit, final AtomicLong cachedRecordsCount) {
+        if (this.dataStore.isEmpty()) {
+            return false;
+        }
+
+        Cached victim = null;
+
+        for (int i = 0; i < Bucket.SAMPLED_REGIONS && !Util.isUsable(victim); i++) {
+            victim = this.sample(this.randomRegion(scanLimit), filter, comparator, sampleSize, scanLimit);
+        }
+
+        if (!Util.isUsable(victim)) {
+            victim = this.sample(this.dataStore.spliterator(), filter, comparator, sampleSize, Integer.MAX_VALUE);
+        }
+
+        if (!Util.isUsable(victim) || !this.dataStore.remove(victim.getRecordKey(), victim)) {
+            return false;
+        }
+
+        this.evictionQueue.remove(victim);
+        cachedRecordsCount.getAndAdd(-1);
+        this.recordRemoval(victim, RemovalCause.EVICTED);
+
+        return true;
+    }
+
+    private Spliterator<Cached> randomRegion(final int regionSize) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Spliterator<Cached> spliterator = this.dataStore.spliterator();
+
+        while (spliterator.estimateSize() > regionSize) {
+            Spliterator<Cached> prefix = spliterator.trySplit();
+
+            if (!Util.isUsable(prefix)) {
+                break;
+            }
+
+            if (random.nextBoolean()) {
+                spliterator = prefix;
+            }
+        }
+
+        return spliterator;
+    }
+
+    private Cached sample(final Spliterator<Cached> spliterator, final Predicate<Cached> filter, final Comparator<Cached> comparator, final int sampleSize, final int scanLimit) {
+        Cached[] victim = new Cached[1];
+        int[] matches = new int[1];
+
+        for (int i = 0; i < scanLimit && matches[0] < sampleSize; i++) {
+            boolean advanced = spliterator.tryAdvance(candidate -> {
+                if (filter.test(candidate)) {
+                    matches[0]++;
+
+                    if (!Util.isUsable(victim[0]) || (Util.isUsable(comparator) && comparator.compare(candidate, victim[0]) < 0)) {
+                        victim[0] = candidate;
+                    }
+                }
+            });
+
+            if (!advanced) {
+                break;
+            }
+        }
+
+        return victim[0];
+    }
+
     synchronized void evict(final AtomicLong cachedRecordsCount) {
         Cached cachedRecord = this.evictionQueue.poll();
 
+        while (Util.isUsable(cachedRecord) && !this.dataStore.remove(cachedRecord.getRecordKey(), cachedRecord)) {
+            cachedRecord = this.evictionQueue.poll();
+        }
+
         if (Util.isUsable(cachedRecord)) {
-            this.dataStore.remove(cachedRecord.getRecordKey());
             cachedRecordsCount.getAndAdd(-1);
+            this.recordRemoval(cachedRecord, RemovalCause.EVICTED);
         }
     }
 }
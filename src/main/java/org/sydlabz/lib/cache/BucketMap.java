@@ -1,27 +1,39 @@
 package org.sydlabz.lib.cache;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.IntStream;
+import java.util.function.BiPredicate;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 
 final class BucketMap {
-    private final TreeMap<Integer, Bucket> hashRing;
     private final int bucketCount;
+    private final long interval;
     private final transient CacheConfiguration cacheConfiguration;
-    private final transient DataSource dataSource;
+    private final transient LoadCoordinator loadCoordinator;
+    private final transient RemovalDispatcher removalDispatcher;
+    private final transient EntryIndex entryIndex;
 
+    private volatile Bucket[] buckets;
     private AtomicLong cachedRecordsCount;
 
-    BucketMap(final int bucketCount, final CacheConfiguration cacheConfiguration, final DataSource dataSource) {
+    BucketMap(final int bucketCount, final CacheConfiguration cacheConfiguration, final LoadCoordinator loadCoordinator, final RemovalDispatcher removalDispatcher, final EntryIndex entryIndex) {
         this.validate(bucketCount);
 
         this.bucketCount = bucketCount;
-        this.hashRing = new TreeMap<>();
+        this.interval = Util.HASH_KEY_RANGE / bucketCount;
         this.cacheConfiguration = cacheConfiguration;
-        this.dataSource = dataSource;
+        this.loadCoordinator = loadCoordinator;
+        this.removalDispatcher = removalDispatcher;
+        this.entryIndex = entryIndex;
         this.cachedRecordsCount = new AtomicLong(0L);
 
         this.createAndAttachBuckets();
@@ -34,32 +46,43 @@ final class BucketMap {
     }
 
     private void createAndAttachBuckets() {
-        int interval = (int) (Util.HASH_KEY_RANGE / bucketCount);
+        Bucket[] freshBuckets = new Bucket[this.bucketCount];
 
-        IntStream.range(0, this.bucketCount).forEach(index -> {
-            int bucketKey = index * interval;
-            this.hashRing.put(bucketKey, new Bucket(cacheConfiguration, dataSource));
-        });
+        for (int index = 0; index < this.bucketCount; index++) {
+            freshBuckets[index] = new Bucket(cacheConfiguration, loadCoordinator, removalDispatcher, entryIndex);
+        }
+
+        this.buckets = freshBuckets;
     }
 
-    private Bucket getBucket(final String key) {
+    /**
+     * Bucket {@code i} owns the ring position {@code i * interval}; a key goes to the bucket at or after its hash,
+     * wrapping around to the first one, so the mapping is computed rather than looked up in a sorted map.
+     */
+    int indexOf(final String key) {
         int hashKey = Util.hash(key);
-        Bucket bucket = this.hashRing.get(hashKey);
 
-        if (Util.isUsable(bucket)) {
-            return bucket;
+        if (hashKey <= 0) {
+            return 0;
         }
 
-        SortedMap<Integer, Bucket> hashRingTail = this.hashRing.tailMap(hashKey);
-        int nearestHashKey = hashRingTail.isEmpty() ? this.hashRing.firstKey() : hashRingTail.firstKey();
+        long index = (hashKey + this.interval - 1L) / this.interval;
 
-        return this.hashRing.get(nearestHashKey);
+        return index < this.bucketCount ? (int) index : 0;
+    }
+
+    private Bucket getBucket(final String key) {
+        return this.buckets[this.indexOf(key)];
     }
 
     Cached getAndUpdate(final String recordKey) {
         return this.getBucket(recordKey).getAndUpdate(recordKey);
     }
 
+    void access(final Cached cachedRecord, final int accessCount) {
+        this.getBucket(cachedRecord.getRecordKey()).access(cachedRecord, accessCount);
+    }
+
     public Cached getOnly(String recordKey) {
         return this.getBucket(recordKey).getOnly(recordKey);
     }
@@ -68,13 +91,57 @@ final class BucketMap {
         this.getBucket(recordKey).put(recordKey, cachedRecord, this.cachedRecordsCount);
     }
 
+    Cached update(final String recordKey, final Cacheable data) {
+        return this.getBucket(recordKey).update(recordKey, data);
+    }
+
+    /**
+     * Inserts the absent records, locking each bucket once, without going over the capacity.
+     *
+     * @return the number of inserted records.
+     */
+    long putAll(final List<Cached> cachedRecords, final long capacity) {
+        Map<Bucket, List<Cached>> recordsByBucket = new IdentityHashMap<>();
+        long insertedCount = 0L;
+
+        for (Cached cachedRecord : cachedRecords) {
+            recordsByBucket.computeIfAbsent(this.getBucket(cachedRecord.getRecordKey()), bucket -> new ArrayList<>()).add(cachedRecord);
+        }
+
+        for (Map.Entry<Bucket, List<Cached>> entry : recordsByBucket.entrySet()) {
+            insertedCount += entry.getKey().putAll(entry.getValue(), this.cachedRecordsCount, capacity);
+        }
+
+        return insertedCount;
+    }
+
+    Mutation compute(final String recordKey, final Remapping remapping) {
+        return this.getBucket(recordKey).compute(recordKey, remapping, this.cachedRecordsCount);
+    }
+
+    void refresh(final String recordKey, final Cacheable data) {
+        this.getBucket(recordKey).refresh(recordKey, data, this.cachedRecordsCount);
+    }
+
     void remove(final String recordKey) {
         this.getBucket(recordKey).remove(recordKey, this.cachedRecordsCount);
     }
 
+    long removeIf(final BiPredicate<String, Cacheable> predicate) {
+        return Arrays.stream(this.buckets)
+                .parallel()
+                .mapToLong(bucket -> bucket.removeIf(predicate, this.cachedRecordsCount))
+                .sum();
+    }
+
+    void index(final EntryIndex targetIndex) {
+        for (Bucket bucket : this.buckets) {
+            bucket.index(targetIndex);
+        }
+    }
+
     synchronized void clear() {
         this.cachedRecordsCount = new AtomicLong(0L);
-        this.hashRing.clear();
         this.createAndAttachBuckets();
     }
 
@@ -87,7 +154,17 @@ final class BucketMap {
     }
 
     Collection<Bucket> getBuckets() {
-        return Collections.unmodifiableCollection(this.hashRing.values());
+        return Collections.unmodifiableList(Arrays.asList(this.buckets));
+    }
+
+    long getEvictionCount() {
+        long evictionCount = 0L;
+
+        for (Bucket bucket : this.buckets) {
+            evictionCount += bucket.getEvictionCount();
+        }
+
+        return evictionCount;
     }
 
     int getBucketCount() {
@@ -98,8 +175,31 @@ final class BucketMap {
         this.cachedRecordsCount.getAndAdd(-delta);
     }
 
+    /**
+     * Evicts one record accepted by the filter, sampling buckets at random, see
+     * {@link Bucket#evictSampled(Predicate, Comparator, int, int, AtomicLong)}. Buckets whose index is rejected by
+     * the bucket filter are known to hold no such record and are not scanned.
+     *
+     * @return true if a record was evicted.
+     */
+    boolean evictMatching(final Predicate<Cached> filter, final IntPredicate bucketFilter, final Comparator<Cached> comparator, final int sampleSize) {
+        Bucket[] buckets = this.buckets;
+        int start = ThreadLocalRandom.current().nextInt(buckets.length);
+        int scanLimit = Math.max(sampleSize, 1) * 8;
+
+        for (int i = 0; i < buckets.length; i++) {
+            int index = (start + i) % buckets.length;
+
+            if (bucketFilter.test(index) && buckets[index].evictSampled(filter, comparator, sampleSize, scanLimit, this.cachedRecordsCount)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     synchronized void doEviction() {
-        for (Bucket bucket : this.hashRing.values()) {
+        for (Bucket bucket : this.buckets) {
             bucket.evict(this.cachedRecordsCount);
         }
     }
@@ -0,0 +1,101 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Weakly consistent spliterator over the records of a range of buckets.
+ * <p>
+ * Splitting halves the bucket range; once a single bucket is left it splits that bucket's data store. No bucket is
+ * locked and nothing is copied, so records added or removed during traversal may or may not be seen.
+ */
+final class BucketSpliterator<T> implements Spliterator<T> {
+    private final Bucket[] buckets;
+    private final Function<Cached, T> mapper;
+    private final int fence;
+
+    private int bucketIndex;
+    private Spliterator<Cached> current;
+
+    BucketSpliterator(final Bucket[] buckets, final Function<Cached, T> mapper) {
+        this(buckets, 0, buckets.length, null, mapper);
+    }
+
+    private BucketSpliterator(final Bucket[] buckets, final int origin, final int fence, final Spliterator<Cached> current, final Function<Cached, T> mapper) {
+        this.buckets = buckets;
+        this.bucketIndex = origin;
+        this.fence = fence;
+        this.current = current;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        while (true) {
+            if (!Util.isUsable(this.current)) {
+                if (this.bucketIndex >= this.fence) {
+                    return false;
+                }
+
+                this.current = this.buckets[this.bucketIndex++].spliterator();
+            }
+
+            if (this.current.tryAdvance(cachedRecord -> action.accept(this.mapper.apply(cachedRecord)))) {
+                return true;
+            }
+
+            this.current = null;
+        }
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super T> action) {
+        if (Util.isUsable(this.current)) {
+            this.current.forEachRemaining(cachedRecord -> action.accept(this.mapper.apply(cachedRecord)));
+            this.current = null;
+        }
+
+        while (this.bucketIndex < this.fence) {
+            this.buckets[this.bucketIndex++].spliterator().forEachRemaining(cachedRecord -> action.accept(this.mapper.apply(cachedRecord)));
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int remainingBuckets = this.fence - this.bucketIndex;
+
+        if (remainingBuckets > 1 || (remainingBuckets == 1 && Util.isUsable(this.current))) {
+            int middle = (this.bucketIndex + this.fence + (Util.isUsable(this.current) ? 1 : 0)) >>> 1;
+            BucketSpliterator<T> prefix = new BucketSpliterator<>(this.buckets, this.bucketIndex, middle, null, this.mapper);
+
+            this.bucketIndex = middle;
+
+            return prefix;
+        }
+
+        if (!Util.isUsable(this.current) && remainingBuckets == 1) {
+            this.current = this.buckets[this.bucketIndex++].spliterator();
+        }
+
+        Spliterator<Cached> split = Util.isUsable(this.current) ? this.current.trySplit() : null;
+
+        return Util.isUsable(split) ? new BucketSpliterator<>(this.buckets, 0, 0, split, this.mapper) : null;
+    }
+
+    @Override
+    public long estimateSize() {
+        long size = Util.isUsable(this.current) ? this.current.estimateSize() : 0L;
+
+        for (int i = this.bucketIndex; i < this.fence; i++) {
+            size += this.buckets[i].size();
+        }
+
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL;
+    }
+}
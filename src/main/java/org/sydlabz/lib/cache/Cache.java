@@ -1,8 +1,30 @@
 package org.sydlabz.lib.cache;
 
-import java.util.LinkedList;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Timer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public final class Cache {
     private final String name;
@@ -10,20 +32,54 @@ public final class Cache {
 
     private final BucketMap bucketMap;
     private final DataSource dataSource;
-    private transient Timer invalidationTimer;
+    private final transient RemovalDispatcher removalDispatcher;
+    private final transient EntryIndexes entryIndexes;
+    private final transient TagIndex tagIndex;
+    private transient PrefixIndex prefixIndex;
+    private final transient Map<String, SecondaryIndex> secondaryIndexes;
+    private transient HotKeyCache hotKeyCache;
+    private transient Prefetcher prefetcher;
+    private transient TenantQuotas tenantQuotas;
+    private final transient LoadCoordinator loadCoordinator;
+    private final transient TraceRecorder traceRecorder;
+    private final transient CacheManager cacheManager;
+    private final transient MaintenanceScheduler maintenanceScheduler;
+    private final transient ThreadPoolExecutor reloadExecutor;
+    private final transient ScheduledThreadPoolExecutor removalExecutor;
     private transient InvalidationTask invalidationTask;
 
-    private LinkedList<DataSourceItem> dataSyncQueue;
-    private transient Timer dataSyncTimer;
+    private transient GroupCommitter groupCommitter;
+
+    private Queue<DataSourceItem> dataSyncQueue;
     private transient DataSyncTask dataSyncTask;
 
     private boolean active;
 
     public Cache(final String name, final DataSource dataSource, final CacheConfiguration cacheConfiguration) {
+        this(name, dataSource, cacheConfiguration, null);
+    }
+
+    /**
+     * Creates a cache running on the maintenance and reload pools of the manager, or on pools of its own when there is
+     * none.
+     */
+    Cache(final String name, final DataSource dataSource, final CacheConfiguration cacheConfiguration, final CacheManager cacheManager) {
         this.name = name;
         this.cacheConfiguration = cacheConfiguration;
         this.dataSource = dataSource;
-        this.bucketMap = new BucketMap(Util.BUCKET_COUNT, cacheConfiguration, dataSource);
+        this.traceRecorder = cacheConfiguration.getTraceRecorder();
+        this.cacheManager = cacheManager;
+        this.maintenanceScheduler = Util.isUsable(cacheManager) ? cacheManager.getMaintenanceScheduler() : new MaintenanceScheduler(1);
+        this.reloadExecutor = Util.isUsable(cacheManager) ? cacheManager.getReloadExecutor() : LoadCoordinator.createReloadExecutor(cacheConfiguration.getReloadThreadCount());
+        this.removalExecutor = Util.isUsable(cacheManager) ? cacheManager.getRemovalExecutor() : RemovalDispatcher.createRemovalExecutor(1);
+        this.removalDispatcher = new RemovalDispatcher(cacheConfiguration.getRemovalListenerExecutor(), this.removalExecutor, cacheConfiguration.getRemovalBatchSize());
+        this.loadCoordinator = new LoadCoordinator(dataSource, this.reloadExecutor, cacheConfiguration.getMaxConcurrentLoads());
+        this.entryIndexes = new EntryIndexes();
+        this.tagIndex = new TagIndex();
+        this.secondaryIndexes = new ConcurrentHashMap<>();
+        this.bucketMap = new BucketMap(cacheConfiguration.getBucketCount(), cacheConfiguration, this.loadCoordinator, this.removalDispatcher, this.entryIndexes);
+
+        this.configureIndexes();
 
         this.configureDataSync();
         this.configureInvalidation();
@@ -31,51 +87,192 @@ public final class Cache {
         this.active = true;
     }
 
+    private void configureIndexes() {
+        this.entryIndexes.register(this.tagIndex);
+
+        if (this.cacheConfiguration.isPrefixIndexEnabled()) {
+            this.prefixIndex = new PrefixIndex();
+            this.entryIndexes.register(this.prefixIndex);
+        }
+
+        if (this.cacheConfiguration.isHotKeyDetectionEnabled()) {
+            this.hotKeyCache = new HotKeyCache(this.cacheConfiguration, this.bucketMap);
+            this.entryIndexes.register(this.hotKeyCache);
+        }
+
+        if (Util.isUsable(this.cacheConfiguration.getTenantExtractor())) {
+            this.tenantQuotas = new TenantQuotas(this.cacheConfiguration, this.bucketMap);
+            this.entryIndexes.register(this.tenantQuotas);
+        }
+
+        if (this.cacheConfiguration.isPrefetchEnabled()) {
+            this.prefetcher = new Prefetcher(this.cacheConfiguration);
+            this.entryIndexes.register(this.prefetcher);
+        }
+    }
+
     private void configureDataSync() {
-        if (WriteStrategy.WRITE_BEHIND == this.cacheConfiguration.getWriteStrategy()) {
-            this.dataSyncQueue = new LinkedList<>();
-            this.dataSyncTimer = new Timer();
-            this.dataSyncTask = new DataSyncTask(this.dataSyncQueue, this.dataSource);
-            this.dataSyncTimer.schedule(this.dataSyncTask, this.cacheConfiguration.getInitialDataSyncDelay(), this.cacheConfiguration.getDataSyncFrequency());
+        if (WriteStrategy.WRITE_THROUGH == this.cacheConfiguration.getWriteStrategy() && this.cacheConfiguration.isGroupCommitEnabled()) {
+            this.groupCommitter = new GroupCommitter(this.dataSource, this.cacheConfiguration.getGroupCommitWindow(), this.cacheConfiguration.getGroupCommitBatchSize());
+        } else if (WriteStrategy.WRITE_BEHIND == this.cacheConfiguration.getWriteStrategy()) {
+            this.dataSyncQueue = new ConcurrentLinkedQueue<>();
+            this.dataSyncTask = new DataSyncTask(this.dataSyncQueue, this.dataSource, this.maintenanceScheduler, this.cacheConfiguration.getMaintenanceTimeBudget());
+            this.maintenanceScheduler.schedule(this.dataSyncTask, this.cacheConfiguration.getInitialDataSyncDelay(), this.cacheConfiguration.getDataSyncFrequency());
         }
     }
 
     private void configureInvalidation() {
         if (this.cacheConfiguration.isInvalidationEnabled()) {
-            this.invalidationTimer = new Timer();
-            this.invalidationTask = new InvalidationTask(this.bucketMap);
-            this.invalidationTimer.schedule(this.invalidationTask, this.cacheConfiguration.getInitialInvalidationDelay(), this.cacheConfiguration.getInvalidationFrequency());
+            this.invalidationTask = new InvalidationTask(this.bucketMap, this.maintenanceScheduler, this.cacheConfiguration.getMaintenanceTimeBudget());
+            this.maintenanceScheduler.schedule(this.invalidationTask, this.cacheConfiguration.getInitialInvalidationDelay(), this.cacheConfiguration.getInvalidationFrequency());
         }
     }
 
     public Optional<Cacheable> get(final String key) {
         this.validateState();
         this.validateKey(key);
+        this.trace(TraceOperation.GET, key);
+
+        if (Util.isUsable(this.prefetcher)) {
+            this.prefetch(this.prefetcher.onRead(key));
+        }
+
+        if (Util.isUsable(this.hotKeyCache)) {
+            return this.getTracked(key);
+        }
 
         Cached cachedRecord = this.bucketMap.getAndUpdate(key);
 
         if (Util.isUsable(cachedRecord)) {
-            return getFromCache(cachedRecord);
+            return getFromCache(key, cachedRecord);
         } else {
             return getFromDataSource(key);
         }
     }
 
-    private Optional<Cacheable> getFromCache(final Cached cachedRecord) {
-        return Optional.of(cachedRecord.getCachedData());
+    /**
+     * Returns the cached data of the key, or null when it is not cached; nothing is loaded on the calling thread or
+     * prefetched, but a stale hit starts a background reload like any other read. A hit allocates nothing, which
+     * suits hot read paths.
+     */
+    public Cacheable getIfPresent(final String key) {
+        this.validateState();
+        this.validateKey(key);
+        this.trace(TraceOperation.GET, key);
+
+        long version = 0L;
+
+        if (Util.isUsable(this.hotKeyCache)) {
+            HotKeyCache.LocalCopy localCopy = this.hotKeyCache.get(key);
+
+            if (Util.isUsable(localCopy)) {
+                return this.readCached(key, localCopy.cachedRecord());
+            }
+
+            version = this.hotKeyCache.getVersion(key);
+        }
+
+        Cached cachedRecord = this.bucketMap.getAndUpdate(key);
+
+        if (!Util.isUsable(cachedRecord)) {
+            this.recordRead(key, false);
+
+            return null;
+        }
+
+        if (Util.isUsable(this.hotKeyCache)) {
+            this.hotKeyCache.onRead(key, cachedRecord, version);
+        }
+
+        return this.readCached(key, cachedRecord);
+    }
+
+    private void prefetch(final List<String> recordKeys) {
+        for (String recordKey : recordKeys) {
+            if (Util.isUsable(this.bucketMap.getOnly(recordKey)) || !this.prefetcher.tryReserve()) {
+                continue;
+            }
+
+            if (!this.loadCoordinator.prefetch(recordKey, data -> this.insertPrefetched(recordKey, data), this.prefetcher::release)) {
+                this.prefetcher.release();
+            }
+        }
+    }
+
+    private void insertPrefetched(final String key, final Cacheable data) {
+        if (!Util.isUsable(data) || !this.active) {
+            return;
+        }
+
+        Mutation mutation = this.bucketMap.compute(key, currentRecord -> Util.isUsable(currentRecord) ? Remapping.UNCHANGED : data);
+
+        if (mutation.changed()) {
+            this.prefetcher.onPrefetched(key);
+            this.evictFor(key, true);
+        }
+    }
+
+    private Optional<Cacheable> getTracked(final String key) {
+        HotKeyCache.LocalCopy localCopy = this.hotKeyCache.get(key);
+
+        if (Util.isUsable(localCopy)) {
+            return getFromCache(key, localCopy.cachedRecord());
+        }
+
+        long version = this.hotKeyCache.getVersion(key);
+        Cached cachedRecord = this.bucketMap.getAndUpdate(key);
+
+        if (!Util.isUsable(cachedRecord)) {
+            return getFromDataSource(key);
+        }
+
+        this.hotKeyCache.onRead(key, cachedRecord, version);
+
+        return getFromCache(key, cachedRecord);
+    }
+
+    private Optional<Cacheable> getFromCache(final String key, final Cached cachedRecord) {
+        return Optional.ofNullable(this.readCached(key, cachedRecord));
+    }
+
+    private Cacheable readCached(final String key, final Cached cachedRecord) {
+        this.recordRead(key, true);
+
+        if (this.isStale(cachedRecord)) {
+            this.loadCoordinator.reload(key, data -> this.bucketMap.refresh(key, data));
+        }
+
+        return cachedRecord.getCachedData();
+    }
+
+    /**
+     * A record is stale once it outlived the invalidation life time but is still within the grace period, during
+     * which it keeps being served while it is reloaded in the background.
+     */
+    private boolean isStale(final Cached cachedRecord) {
+        InvalidationStrategy invalidationStrategy = this.cacheConfiguration.getInvalidationStrategy();
+
+        return this.cacheConfiguration.getStaleGracePeriod() > 0
+                && InvalidationStrategy.TIME_BASED != invalidationStrategy
+                && System.currentTimeMillis() - cachedRecord.getCreatedTime() > this.cacheConfiguration.getInvalidationLifeTime();
+    }
+
+    private void recordRead(final String key, final boolean hit) {
+        if (Util.isUsable(this.tenantQuotas)) {
+            this.tenantQuotas.onRead(key, hit);
+        }
     }
 
     private Optional<Cacheable> getFromDataSource(final String key) {
-        Cacheable data = this.dataSource.load(key);
+        this.recordRead(key, false);
+
+        Cacheable data = this.loadCoordinator.load(key);
 
         if (!Util.isUsable(data) && !this.cacheConfiguration.isCacheNullValues()) {
             return Optional.empty();
         }
 
-        if (this.getSize() == this.cacheConfiguration.getCacheSize()) {
-            this.bucketMap.doEviction();
-        }
-
+        this.evictFor(key, false);
         this.bucketMap.put(key, new Cached(key, data));
 
         return Optional.of(data);
@@ -83,24 +280,47 @@ public final class Cache {
 
 
     public void put(final String key, final Cacheable data) {
+        this.putInternal(key, data, null);
+    }
+
+    /**
+     * Caches the data and tags the record, replacing the tags of a record already cached under the key. Tags are
+     * kept while the data of the record is updated through the other operations.
+     */
+    public void put(final String key, final Cacheable data, final String... tags) {
+        this.validateTags(tags);
+        this.putInternal(key, data, tags.clone());
+    }
+
+    private void putInternal(final String key, final Cacheable data, final String[] tags) {
         this.validateState();
         this.validateKey(key);
+        this.trace(TraceOperation.PUT, key);
 
         if (!Util.isUsable(data) && !this.cacheConfiguration.isCacheNullValues()) {
             return;
         }
 
-        Cached freshRecord = new Cached(key, data);
+        if (!Util.isUsable(tags)) {
+            Cached updatedRecord = this.bucketMap.update(key, data);
+
+            if (Util.isUsable(updatedRecord)) {
+                executeWriteStrategy(key, true, updatedRecord);
+
+                return;
+            }
+        }
+
         Cached cachedRecord = this.bucketMap.getOnly(key);
-        boolean isUpdate = false;
+        boolean isUpdate = Util.isUsable(cachedRecord);
+        Cached freshRecord = new Cached(key, data, Util.isUsable(tags) || !isUpdate ? tags : cachedRecord.getTags());
 
-        if (Util.isUsable(cachedRecord)) {
-            isUpdate = true;
+        if (isUpdate) {
             freshRecord.setAccessCount(cachedRecord.getAccessCount() + 1);
         }
 
-        if (!isUpdate && this.getSize() == this.cacheConfiguration.getCacheSize()) {
-            this.bucketMap.doEviction();
+        if (!isUpdate) {
+            this.evictFor(key, false);
         }
 
         this.bucketMap.put(key, freshRecord);
@@ -108,10 +328,137 @@ public final class Cache {
         executeWriteStrategy(key, isUpdate, freshRecord);
     }
 
+    /**
+     * Returns the cached data of the key, computing and caching it when absent.
+     * <p>
+     * The mapping function runs once, atomically, while the bucket of the key is locked; it must be short and must
+     * not access this cache. Nothing is cached if it returns null.
+     */
+    public Optional<Cacheable> computeIfAbsent(final String key, final Function<String, ? extends Cacheable> mappingFunction) {
+        return this.mutate(key, currentRecord -> Util.isUsable(currentRecord) ? Remapping.UNCHANGED : mappingFunction.apply(key));
+    }
+
+    /**
+     * Atomically replaces the cached data of the key with the result of the remapping function, which receives
+     * null when the key is absent. A null result removes the record.
+     */
+    public Optional<Cacheable> compute(final String key, final BiFunction<String, ? super Cacheable, ? extends Cacheable> remappingFunction) {
+        return this.mutate(key, currentRecord -> remappingFunction.apply(key, Util.isUsable(currentRecord) ? currentRecord.getCachedData() : null));
+    }
+
+    /**
+     * Caches the data if the key is absent, otherwise atomically combines it with the cached data. A null result
+     * of the remapping function removes the record.
+     */
+    public Optional<Cacheable> merge(final String key, final Cacheable data, final BiFunction<? super Cacheable, ? super Cacheable, ? extends Cacheable> remappingFunction) {
+        return this.mutate(key, currentRecord -> Util.isUsable(currentRecord) ? remappingFunction.apply(currentRecord.getCachedData(), data) : data);
+    }
+
+    /**
+     * Caches the data only if the key is absent.
+     *
+     * @return the data cached before the call, empty if the key was absent.
+     */
+    public Optional<Cacheable> putIfAbsent(final String key, final Cacheable data) {
+        Cacheable[] previousData = new Cacheable[1];
+        Mutation mutation = this.mutateInternal(key, currentRecord -> {
+            if (Util.isUsable(currentRecord)) {
+                previousData[0] = currentRecord.getCachedData();
+
+                return Remapping.UNCHANGED;
+            }
+
+            return data;
+        });
+
+        return mutation.wasPresent() ? Optional.ofNullable(previousData[0]) : Optional.empty();
+    }
+
+    /**
+     * Replaces the cached data of the key only if it currently equals the expected data.
+     *
+     * @return true if the data was replaced.
+     */
+    public boolean replace(final String key, final Cacheable expectedData, final Cacheable data) {
+        boolean[] replaced = new boolean[1];
+
+        this.mutateInternal(key, currentRecord -> {
+            if (Util.isUsable(currentRecord) && Objects.equals(currentRecord.getCachedData(), expectedData)) {
+                replaced[0] = true;
+
+                return data;
+            }
+
+            return Remapping.UNCHANGED;
+        });
+
+        return replaced[0];
+    }
+
+    private Optional<Cacheable> mutate(final String key, final Remapping remapping) {
+        return Optional.ofNullable(this.mutateInternal(key, remapping).data());
+    }
+
+    private Mutation mutateInternal(final String key, final Remapping remapping) {
+        this.validateState();
+        this.validateKey(key);
+        this.trace(TraceOperation.PUT, key);
+
+        Mutation mutation = this.bucketMap.compute(key, remapping);
+
+        if (mutation.changed() && mutation.isPresent()) {
+            if (!mutation.wasPresent()) {
+                this.evictFor(key, true);
+            }
+
+            this.executeWriteStrategy(key, mutation.wasPresent(), mutation.cachedRecord());
+        }
+
+        return mutation;
+    }
+
+    /**
+     * Makes room for a new record of the key, about to be inserted or just inserted. With tenant quotas, a record of
+     * the tenant chosen by {@link TenantQuotas#selectVictim(String, boolean, boolean)} is evicted, sampled by the
+     * eviction criterion; otherwise, or if no such record is found, the buckets evict as usual once the cache is full.
+     */
+    private void evictFor(final String key, final boolean inserted) {
+        boolean full = this.getSize() - (inserted ? 1 : 0) >= this.cacheConfiguration.getCacheSize();
+
+        if (Util.isUsable(this.tenantQuotas)) {
+            String victimTenant = this.tenantQuotas.selectVictim(key, full, inserted);
+
+            if (Util.isUsable(victimTenant) && this.bucketMap.evictMatching(
+                    cachedRecord -> !cachedRecord.getRecordKey().equals(key) && victimTenant.equals(this.tenantQuotas.tenantOf(cachedRecord.getRecordKey())),
+                    bucketIndex -> this.tenantQuotas.occupies(victimTenant, bucketIndex),
+                    this.getEvictionComparator(), this.cacheConfiguration.getEvictionSampleSize())) {
+                return;
+            }
+        }
+
+        if (full) {
+            this.bucketMap.doEviction();
+        }
+    }
+
+    private Comparator<Cached> getEvictionComparator() {
+        EvictionStrategy evictionStrategy = this.cacheConfiguration.getEvictionStrategy();
+
+        if (EvictionStrategy.RANDOM == evictionStrategy) {
+            return Cached.getComparator(this.cacheConfiguration.getEvictionSampleCriterion());
+        } else if (EvictionStrategy.ADAPTIVE == evictionStrategy) {
+            return Cached.getComparator(EvictionStrategy.LRU);
+        }
+
+        return Cached.getComparator(evictionStrategy);
+    }
+
     private void executeWriteStrategy(final String key, final boolean isUpdate, final Cached cachedRecord) {
         WriteStrategy writeStrategy = this.cacheConfiguration.getWriteStrategy();
 
-        if (WriteStrategy.WRITE_THROUGH == writeStrategy) {
+        if (WriteStrategy.WRITE_THROUGH == writeStrategy && Util.isUsable(this.groupCommitter)) {
+            this.groupCommitter.write(key, cachedRecord.getCachedData(), isUpdate);
+        } else if (WriteStrategy.WRITE_THROUGH == writeStrategy) {
             if (isUpdate) {
                 this.dataSource.update(key, cachedRecord.getCachedData());
             } else {
@@ -125,10 +472,216 @@ public final class Cache {
     public void remove(final String key) {
         this.validateState();
         this.validateKey(key);
+        this.trace(TraceOperation.REMOVE, key);
 
         this.bucketMap.remove(key);
     }
 
+    private void trace(final TraceOperation operation, final String key) {
+        if (Util.isUsable(this.traceRecorder)) {
+            this.traceRecorder.record(operation, key);
+        }
+    }
+
+    /**
+     * Preloads the whole dataset, see {@link #warmUp(Stream, Consumer)}; the data source has to support
+     * {@link DataSource#keys()}.
+     */
+    public WarmUpProgress warmUp() {
+        return this.warmUp(this.dataSource.keys(), null);
+    }
+
+    public WarmUpProgress warmUp(final Stream<String> keys) {
+        return this.warmUp(keys, null);
+    }
+
+    /**
+     * Loads the keys from the data source in parallel chunks and caches them, typically before taking traffic.
+     * Keys already cached are skipped, no write strategy runs and nothing is evicted: the warm-up stops once the
+     * cache is full. The progress listener is called after each chunk from a pool thread, one call at a time.
+     *
+     * @return the final progress.
+     */
+    public WarmUpProgress warmUp(final Stream<String> keys, final Consumer<WarmUpProgress> progressListener) {
+        this.validateState();
+
+        return new CacheWarmer(this.bucketMap, this.dataSource, this.cacheConfiguration).warmUp(keys, progressListener);
+    }
+
+    public void addRemovalListener(final RemovalListener removalListener) {
+        this.removalDispatcher.addListener(removalListener);
+    }
+
+    public void removeRemovalListener(final RemovalListener removalListener) {
+        this.removalDispatcher.removeListener(removalListener);
+    }
+
+    /**
+     * Weakly consistent view of the cached records. Its spliterator splits along buckets, so parallel streams
+     * traverse the cache without locking it or copying it.
+     */
+    public Collection<Map.Entry<String, Cacheable>> entries() {
+        this.validateState();
+
+        return new CacheView<>(this.bucketMap, cachedRecord -> new AbstractMap.SimpleImmutableEntry<>(cachedRecord.getRecordKey(), cachedRecord.getCachedData()));
+    }
+
+    /**
+     * Copies the cached records into an immutable {@link FrozenCache}, read without locking. The copy is as weakly
+     * consistent as {@link #entries()}; this cache keeps working and can be shut down once the copy is taken.
+     */
+    public FrozenCache freeze() {
+        FrozenCache.Builder builder = new FrozenCache.Builder(this.name);
+
+        for (Map.Entry<String, Cacheable> entry : this.entries()) {
+            builder.put(entry.getKey(), entry.getValue());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Weakly consistent view of the cached keys, see {@link #entries()}.
+     */
+    public Collection<String> keys() {
+        this.validateState();
+
+        return new CacheView<>(this.bucketMap, Cached::getRecordKey);
+    }
+
+    /**
+     * Removes every record matching the predicate, scanning buckets in parallel. The predicate is evaluated while
+     * the bucket of the record is locked.
+     *
+     * @return the number of removed records.
+     */
+    public long removeIf(final BiPredicate<String, Cacheable> predicate) {
+        this.validateState();
+
+        return this.bucketMap.removeIf(predicate);
+    }
+
+    /**
+     * Removes every record tagged with the tag, in time proportional to the number of tagged records.
+     *
+     * @return the number of removed records.
+     */
+    public long invalidateByTag(final String tag) {
+        this.validateState();
+
+        return this.invalidate(this.tagIndex.getKeys(tag).stream(), cachedRecord -> cachedRecord.hasTag(tag));
+    }
+
+    /**
+     * Removes every record whose key starts with the prefix. With {@link CacheConfiguration#isPrefixIndexEnabled()}
+     * this takes time proportional to the number of matching keys, otherwise every bucket is scanned.
+     *
+     * @return the number of removed records.
+     */
+    public long invalidateByPrefix(final String prefix) {
+        this.validateState();
+        this.validateKey(prefix);
+
+        if (!Util.isUsable(this.prefixIndex)) {
+            return this.bucketMap.removeIf((recordKey, data) -> recordKey.startsWith(prefix));
+        }
+
+        return this.invalidate(this.prefixIndex.getKeys(prefix), cachedRecord -> cachedRecord.getRecordKey().startsWith(prefix));
+    }
+
+    /**
+     * Registers a secondary index over an attribute of the cached data, e.g. an email or an external id, and
+     * indexes the records already cached. The index is kept consistent on every put, remove, eviction and
+     * invalidation; the extractor runs while the bucket of the record is locked and may return null for records
+     * that should not be indexed.
+     */
+    public void createIndex(final String indexName, final Function<? super Cacheable, ?> extractor) {
+        this.validateState();
+
+        SecondaryIndex secondaryIndex = new SecondaryIndex(extractor);
+
+        if (Util.isUsable(this.secondaryIndexes.putIfAbsent(indexName, secondaryIndex))) {
+            throw new IllegalArgumentException("index already exists: " + indexName);
+        }
+
+        this.entryIndexes.register(secondaryIndex);
+        this.bucketMap.index(secondaryIndex);
+    }
+
+    public void dropIndex(final String indexName) {
+        SecondaryIndex secondaryIndex = this.secondaryIndexes.remove(indexName);
+
+        if (Util.isUsable(secondaryIndex)) {
+            this.entryIndexes.unregister(secondaryIndex);
+        }
+    }
+
+    /**
+     * Looks up cached data by the attribute of a secondary index. Only the cache is consulted.
+     *
+     * @return the cached data whose attribute equals the value.
+     */
+    public List<Cacheable> findBy(final String indexName, final Object value) {
+        this.validateState();
+
+        SecondaryIndex secondaryIndex = this.secondaryIndexes.get(indexName);
+
+        if (!Util.isUsable(secondaryIndex)) {
+            throw new IllegalArgumentException("index undefined: " + indexName);
+        }
+
+        List<Cacheable> matches = new ArrayList<>();
+
+        for (String recordKey : secondaryIndex.getKeys(value)) {
+            Cached cachedRecord = this.bucketMap.getAndUpdate(recordKey);
+
+            if (Util.isUsable(cachedRecord)) {
+                matches.add(cachedRecord.getCachedData());
+            }
+        }
+
+        return matches;
+    }
+
+    private long invalidate(final Stream<String> recordKeys, final Predicate<Cached> condition) {
+        return recordKeys
+                .filter(recordKey -> this.bucketMap.compute(recordKey, currentRecord -> Util.isUsable(currentRecord) && condition.test(currentRecord) ? null : Remapping.UNCHANGED).changed())
+                .count();
+    }
+
+    /**
+     * Keys currently tracked as the most read ones, hottest first. Empty unless hot key detection is enabled.
+     */
+    public List<HotKey> getHotKeys() {
+        return Util.isUsable(this.hotKeyCache) ? this.hotKeyCache.getHotKeys() : List.of();
+    }
+
+    /**
+     * Counters of the prefetcher, empty unless prefetching is enabled.
+     */
+    public Optional<PrefetchStatistics> getPrefetchStatistics() {
+        return Util.isUsable(this.prefetcher) ? Optional.of(this.prefetcher.getStatistics()) : Optional.empty();
+    }
+
+    /**
+     * Occupancy and reads of every tenant seen recently, empty unless tenant quotas are enabled.
+     */
+    public List<TenantStatistics> getTenantStatistics() {
+        return Util.isUsable(this.tenantQuotas) ? this.tenantQuotas.getStatistics() : List.of();
+    }
+
+    private void validateTags(final String[] tags) {
+        if (!Util.isUsable(tags)) {
+            throw new IllegalArgumentException("tags undefined");
+        }
+
+        for (String tag : tags) {
+            if (!Util.isUsable(tag)) {
+                throw new IllegalArgumentException("tag undefined");
+            }
+        }
+    }
+
     private void validateState() {
         if (!this.active) {
             throw new RuntimeException("get called with inactive cache");
@@ -152,13 +705,12 @@ public final class Cache {
     public void shutdown(final boolean force, final ShutdownCallback shutdownCallback) {
         WriteStrategy writeStrategy = this.cacheConfiguration.getWriteStrategy();
 
-        if (force || WriteStrategy.WRITE_THROUGH == writeStrategy) {
-            this.shutdownInternal();
-        } else if (writeStrategy == WriteStrategy.WRITE_BEHIND) {
+        if (!force && writeStrategy == WriteStrategy.WRITE_BEHIND) {
             this.dataSyncTask.doDataSync();
-            this.shutdownInternal();
         }
 
+        this.shutdownInternal();
+
         if (Util.isUsable(shutdownCallback)) {
             shutdownCallback.invoke();
         }
@@ -166,18 +718,32 @@ public final class Cache {
 
     private void shutdownInternal() {
         if (this.cacheConfiguration.isInvalidationEnabled()) {
-            this.invalidationTask.await();
             this.invalidationTask.cancel();
-            this.invalidationTimer.cancel();
+            this.invalidationTask.await();
         }
 
         if (WriteStrategy.WRITE_BEHIND == this.cacheConfiguration.getWriteStrategy()) {
-            this.dataSyncQueue.clear();
             this.dataSyncTask.cancel();
-            this.dataSyncTimer.cancel();
+            this.dataSyncTask.await();
+            this.dataSyncQueue.clear();
+        }
+
+        if (Util.isUsable(this.cacheManager)) {
+            this.cacheManager.unregister(this);
+        } else {
+            this.maintenanceScheduler.shutdown();
+            this.reloadExecutor.shutdown();
+            this.removalExecutor.shutdown();
+        }
+
+        this.loadCoordinator.shutdown();
+
+        if (Util.isUsable(this.hotKeyCache)) {
+            this.hotKeyCache.clear();
         }
 
         this.bucketMap.clear();
+        this.removalDispatcher.shutdown();
         this.active = false;
     }
 
@@ -189,8 +755,51 @@ public final class Cache {
         return this.bucketMap.getCachedRecordsCount();
     }
 
+    long getEvictionCount() {
+        return this.bucketMap.getEvictionCount();
+    }
+
+    long getDroppedRemovalCount() {
+        return this.removalDispatcher.getDroppedCount();
+    }
+
+    long getReloadFailureCount() {
+        return this.loadCoordinator.getFailureCount();
+    }
+
+    /**
+     * @return the number of invalidation and data sync passes ended by an exception.
+     */
+    long getMaintenanceFailureCount() {
+        long failureCount = Util.isUsable(this.invalidationTask) ? this.invalidationTask.getFailureCount() : 0L;
+
+        return failureCount + (Util.isUsable(this.dataSyncTask) ? this.dataSyncTask.getFailureCount() : 0L);
+    }
+
+    /**
+     * Streams a JSON summary of the cache to the writer, bucket by bucket, within the limits of the options. The
+     * writer is flushed but not closed.
+     */
+    public void writeDiagnostics(final Writer writer, final DiagnosticsOptions diagnosticsOptions) throws IOException {
+        new DiagnosticsWriter(writer, diagnosticsOptions).write(this.name, this.cacheConfiguration, this.bucketMap, this.getHotKeys());
+    }
+
+    /**
+     * Streams a UTF-8 encoded JSON summary of the cache, see {@link #writeDiagnostics(Writer, DiagnosticsOptions)}.
+     */
+    public void writeDiagnostics(final OutputStream outputStream, final DiagnosticsOptions diagnosticsOptions) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        this.writeDiagnostics(writer, diagnosticsOptions);
+    }
+
     @Override
     public String toString() {
-        return Util.toJson(this);
+        return "Cache{name=" + this.name
+                + ", size=" + this.getSize()
+                + ", cacheSize=" + this.cacheConfiguration.getCacheSize()
+                + ", evictionStrategy=" + this.cacheConfiguration.getEvictionStrategy()
+                + ", writeStrategy=" + this.cacheConfiguration.getWriteStrategy()
+                + ", active=" + this.active + "}";
     }
 }
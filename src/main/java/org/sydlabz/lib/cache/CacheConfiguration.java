@@ -1,41 +1,133 @@
 package org.sydlabz.lib.cache;
 
 import javax.management.timer.Timer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 public final class CacheConfiguration {
     private static final CacheConfiguration defaultCacheConfiguration = new CacheConfiguration();
 
     private long cacheSize;
+    private int bucketCount;
 
     private boolean invalidationEnabled;
     private long initialInvalidationDelay;
     private long invalidationLifeTime;
     private long invalidationFrequency;
     private InvalidationStrategy invalidationStrategy;
+    private long staleGracePeriod;
 
     private EvictionStrategy evictionStrategy;
+    private double adaptiveGhostRatio;
+    private int evictionSampleSize;
+    private EvictionStrategy evictionSampleCriterion;
 
     private long dataSyncFrequency;
     private long initialDataSyncDelay;
     private WriteStrategy writeStrategy;
 
+    private boolean groupCommitEnabled;
+    private long groupCommitWindow;
+    private int groupCommitBatchSize;
+
+    private long maintenanceTimeBudget;
+
+    private transient Executor removalListenerExecutor;
+    private int removalBatchSize;
+
+    private int maxConcurrentLoads;
+    private int reloadThreadCount;
+
+    private boolean prefixIndexEnabled;
+
+    private boolean hotKeyDetectionEnabled;
+    private boolean hotKeyCacheEnabled;
+    private int hotKeyCapacity;
+    private double hotKeyShare;
+    private long hotKeyLifeTime;
+
+    private boolean prefetchEnabled;
+    private int prefetchTableSize;
+    private int prefetchSuccessors;
+    private double prefetchConfidence;
+    private int prefetchBudget;
+    private double prefetchMinAccuracy;
+
+    private int warmUpParallelism;
+    private int warmUpChunkSize;
+
+    private transient Function<String, String> tenantExtractor;
+    private double tenantMinShare;
+    private double tenantMaxShare;
+    private final Map<String, TenantShare> tenantShares;
+    private transient TenantShare defaultTenantShare;
+    private long tenantIdleTime;
+
+    private transient TraceRecorder traceRecorder;
+
     private boolean cacheNullValues;
 
     private CacheConfiguration() {
         this.cacheSize = 16;
+        this.bucketCount = Util.BUCKET_COUNT;
 
         this.invalidationEnabled = true;
         this.initialInvalidationDelay = Timer.ONE_MINUTE;
         this.invalidationLifeTime = Timer.ONE_MINUTE;
         this.invalidationFrequency = Timer.ONE_MINUTE;
         this.invalidationStrategy = InvalidationStrategy.TIME_TO_LIVE;
+        this.staleGracePeriod = 0;
 
         this.evictionStrategy = EvictionStrategy.FIFO;
+        this.adaptiveGhostRatio = 0.5;
+        this.evictionSampleSize = 5;
+        this.evictionSampleCriterion = EvictionStrategy.LRU;
 
         this.dataSyncFrequency = Timer.ONE_MINUTE;
         this.initialDataSyncDelay = Timer.ONE_MINUTE;
         this.writeStrategy = WriteStrategy.WRITE_THROUGH;
 
+        this.groupCommitEnabled = false;
+        this.groupCommitWindow = 1;
+        this.groupCommitBatchSize = 64;
+
+        this.maintenanceTimeBudget = 50;
+
+        this.removalListenerExecutor = null;
+        this.removalBatchSize = 256;
+
+        this.maxConcurrentLoads = 0;
+        this.reloadThreadCount = 2;
+
+        this.prefixIndexEnabled = false;
+
+        this.hotKeyDetectionEnabled = false;
+        this.hotKeyCacheEnabled = false;
+        this.hotKeyCapacity = 32;
+        this.hotKeyShare = 0.01;
+        this.hotKeyLifeTime = 100;
+
+        this.prefetchEnabled = false;
+        this.prefetchTableSize = 1024;
+        this.prefetchSuccessors = 4;
+        this.prefetchConfidence = 0.5;
+        this.prefetchBudget = 16;
+        this.prefetchMinAccuracy = 0.25;
+
+        this.warmUpParallelism = Runtime.getRuntime().availableProcessors();
+        this.warmUpChunkSize = 256;
+
+        this.tenantExtractor = null;
+        this.tenantMinShare = 0.0;
+        this.tenantMaxShare = 1.0;
+        this.tenantShares = new HashMap<>();
+        this.defaultTenantShare = new TenantShare(this.tenantMinShare, this.tenantMaxShare);
+        this.tenantIdleTime = Timer.ONE_MINUTE;
+
+        this.traceRecorder = null;
+
         this.cacheNullValues = false;
 
     }
@@ -48,6 +140,10 @@ public final class CacheConfiguration {
         return this.cacheSize;
     }
 
+    public int getBucketCount() {
+        return this.bucketCount;
+    }
+
     public boolean isInvalidationEnabled() {
         return this.invalidationEnabled;
     }
@@ -68,10 +164,26 @@ public final class CacheConfiguration {
         return this.invalidationStrategy;
     }
 
+    public long getStaleGracePeriod() {
+        return this.staleGracePeriod;
+    }
+
     public EvictionStrategy getEvictionStrategy() {
         return this.evictionStrategy;
     }
 
+    public double getAdaptiveGhostRatio() {
+        return this.adaptiveGhostRatio;
+    }
+
+    public int getEvictionSampleSize() {
+        return this.evictionSampleSize;
+    }
+
+    public EvictionStrategy getEvictionSampleCriterion() {
+        return this.evictionSampleCriterion;
+    }
+
     public long getDataSyncFrequency() {
         return this.dataSyncFrequency;
     }
@@ -84,6 +196,123 @@ public final class CacheConfiguration {
         return this.writeStrategy;
     }
 
+    public boolean isGroupCommitEnabled() {
+        return this.groupCommitEnabled;
+    }
+
+    public long getGroupCommitWindow() {
+        return this.groupCommitWindow;
+    }
+
+    public int getGroupCommitBatchSize() {
+        return this.groupCommitBatchSize;
+    }
+
+    public long getMaintenanceTimeBudget() {
+        return this.maintenanceTimeBudget;
+    }
+
+    public Executor getRemovalListenerExecutor() {
+        return this.removalListenerExecutor;
+    }
+
+    public int getRemovalBatchSize() {
+        return this.removalBatchSize;
+    }
+
+    public int getMaxConcurrentLoads() {
+        return this.maxConcurrentLoads;
+    }
+
+    public int getReloadThreadCount() {
+        return this.reloadThreadCount;
+    }
+
+    public boolean isPrefixIndexEnabled() {
+        return this.prefixIndexEnabled;
+    }
+
+    public boolean isHotKeyDetectionEnabled() {
+        return this.hotKeyDetectionEnabled || this.hotKeyCacheEnabled;
+    }
+
+    public boolean isHotKeyCacheEnabled() {
+        return this.hotKeyCacheEnabled;
+    }
+
+    public int getHotKeyCapacity() {
+        return this.hotKeyCapacity;
+    }
+
+    public double getHotKeyShare() {
+        return this.hotKeyShare;
+    }
+
+    public long getHotKeyLifeTime() {
+        return this.hotKeyLifeTime;
+    }
+
+    public boolean isPrefetchEnabled() {
+        return this.prefetchEnabled;
+    }
+
+    public int getPrefetchTableSize() {
+        return this.prefetchTableSize;
+    }
+
+    public int getPrefetchSuccessors() {
+        return this.prefetchSuccessors;
+    }
+
+    public double getPrefetchConfidence() {
+        return this.prefetchConfidence;
+    }
+
+    public int getPrefetchBudget() {
+        return this.prefetchBudget;
+    }
+
+    public double getPrefetchMinAccuracy() {
+        return this.prefetchMinAccuracy;
+    }
+
+    public int getWarmUpParallelism() {
+        return this.warmUpParallelism;
+    }
+
+    public int getWarmUpChunkSize() {
+        return this.warmUpChunkSize;
+    }
+
+    public Function<String, String> getTenantExtractor() {
+        return this.tenantExtractor;
+    }
+
+    public double getTenantMinShare() {
+        return this.tenantMinShare;
+    }
+
+    public double getTenantMaxShare() {
+        return this.tenantMaxShare;
+    }
+
+    /**
+     * @return the share configured for the tenant, or the default share.
+     */
+    public TenantShare getTenantShare(final String tenant) {
+        TenantShare tenantShare = this.tenantShares.get(tenant);
+
+        return Util.isUsable(tenantShare) ? tenantShare : this.defaultTenantShare;
+    }
+
+    public long getTenantIdleTime() {
+        return this.tenantIdleTime;
+    }
+
+    public TraceRecorder getTraceRecorder() {
+        return this.traceRecorder;
+    }
+
     public boolean isCacheNullValues() {
         return this.cacheNullValues;
     }
@@ -101,6 +330,12 @@ public final class CacheConfiguration {
             return this;
         }
 
+        public Builder bucketCount(final int bucketCount) {
+            this.cacheConfiguration.bucketCount = bucketCount;
+
+            return this;
+        }
+
         public Builder isInvalidationEnabled(final boolean invalidationEnabled) {
             this.cacheConfiguration.invalidationEnabled = invalidationEnabled;
 
@@ -131,12 +366,36 @@ public final class CacheConfiguration {
             return this;
         }
 
+        public Builder staleGracePeriod(final long staleGracePeriod) {
+            this.cacheConfiguration.staleGracePeriod = staleGracePeriod;
+
+            return this;
+        }
+
         public Builder evictionStrategy(final EvictionStrategy evictionStrategy) {
             this.cacheConfiguration.evictionStrategy = evictionStrategy;
 
             return this;
         }
 
+        public Builder adaptiveGhostRatio(final double adaptiveGhostRatio) {
+            this.cacheConfiguration.adaptiveGhostRatio = adaptiveGhostRatio;
+
+            return this;
+        }
+
+        public Builder evictionSampleSize(final int evictionSampleSize) {
+            this.cacheConfiguration.evictionSampleSize = evictionSampleSize;
+
+            return this;
+        }
+
+        public Builder evictionSampleCriterion(final EvictionStrategy evictionSampleCriterion) {
+            this.cacheConfiguration.evictionSampleCriterion = evictionSampleCriterion;
+
+            return this;
+        }
+
         public Builder dataSyncFrequency(final long dataSyncFrequency) {
             this.cacheConfiguration.dataSyncFrequency = dataSyncFrequency;
 
@@ -155,13 +414,196 @@ public final class CacheConfiguration {
             return this;
         }
 
+        public Builder groupCommitEnabled(final boolean groupCommitEnabled) {
+            this.cacheConfiguration.groupCommitEnabled = groupCommitEnabled;
+
+            return this;
+        }
+
+        public Builder groupCommitWindow(final long groupCommitWindow) {
+            this.cacheConfiguration.groupCommitWindow = groupCommitWindow;
+
+            return this;
+        }
+
+        public Builder groupCommitBatchSize(final int groupCommitBatchSize) {
+            this.cacheConfiguration.groupCommitBatchSize = groupCommitBatchSize;
+
+            return this;
+        }
+
+        public Builder maintenanceTimeBudget(final long maintenanceTimeBudget) {
+            this.cacheConfiguration.maintenanceTimeBudget = maintenanceTimeBudget;
+
+            return this;
+        }
+
+        public Builder removalListenerExecutor(final Executor removalListenerExecutor) {
+            this.cacheConfiguration.removalListenerExecutor = removalListenerExecutor;
+
+            return this;
+        }
+
+        public Builder removalBatchSize(final int removalBatchSize) {
+            this.cacheConfiguration.removalBatchSize = removalBatchSize;
+
+            return this;
+        }
+
+        public Builder maxConcurrentLoads(final int maxConcurrentLoads) {
+            this.cacheConfiguration.maxConcurrentLoads = maxConcurrentLoads;
+
+            return this;
+        }
+
+        public Builder reloadThreadCount(final int reloadThreadCount) {
+            this.cacheConfiguration.reloadThreadCount = reloadThreadCount;
+
+            return this;
+        }
+
+        public Builder prefixIndexEnabled(final boolean prefixIndexEnabled) {
+            this.cacheConfiguration.prefixIndexEnabled = prefixIndexEnabled;
+
+            return this;
+        }
+
+        public Builder hotKeyDetectionEnabled(final boolean hotKeyDetectionEnabled) {
+            this.cacheConfiguration.hotKeyDetectionEnabled = hotKeyDetectionEnabled;
+
+            return this;
+        }
+
+        public Builder hotKeyCacheEnabled(final boolean hotKeyCacheEnabled) {
+            this.cacheConfiguration.hotKeyCacheEnabled = hotKeyCacheEnabled;
+
+            return this;
+        }
+
+        public Builder hotKeyCapacity(final int hotKeyCapacity) {
+            this.cacheConfiguration.hotKeyCapacity = hotKeyCapacity;
+
+            return this;
+        }
+
+        public Builder hotKeyShare(final double hotKeyShare) {
+            this.cacheConfiguration.hotKeyShare = hotKeyShare;
+
+            return this;
+        }
+
+        public Builder hotKeyLifeTime(final long hotKeyLifeTime) {
+            this.cacheConfiguration.hotKeyLifeTime = hotKeyLifeTime;
+
+            return this;
+        }
+
+        public Builder prefetchEnabled(final boolean prefetchEnabled) {
+            this.cacheConfiguration.prefetchEnabled = prefetchEnabled;
+
+            return this;
+        }
+
+        public Builder prefetchTableSize(final int prefetchTableSize) {
+            this.cacheConfiguration.prefetchTableSize = prefetchTableSize;
+
+            return this;
+        }
+
+        public Builder prefetchSuccessors(final int prefetchSuccessors) {
+            this.cacheConfiguration.prefetchSuccessors = prefetchSuccessors;
+
+            return this;
+        }
+
+        public Builder prefetchConfidence(final double prefetchConfidence) {
+            this.cacheConfiguration.prefetchConfidence = prefetchConfidence;
+
+            return this;
+        }
+
+        public Builder prefetchBudget(final int prefetchBudget) {
+            this.cacheConfiguration.prefetchBudget = prefetchBudget;
+
+            return this;
+        }
+
+        public Builder prefetchMinAccuracy(final double prefetchMinAccuracy) {
+            this.cacheConfiguration.prefetchMinAccuracy = prefetchMinAccuracy;
+
+            return this;
+        }
+
+        public Builder warmUpParallelism(final int warmUpParallelism) {
+            this.cacheConfiguration.warmUpParallelism = warmUpParallelism;
+
+            return this;
+        }
+
+        public Builder warmUpChunkSize(final int warmUpChunkSize) {
+            this.cacheConfiguration.warmUpChunkSize = warmUpChunkSize;
+
+            return this;
+        }
+
+        /**
+         * Enables per-tenant quotas; the extractor returns the tenant of a key.
+         */
+        public Builder tenantExtractor(final Function<String, String> tenantExtractor) {
+            this.cacheConfiguration.tenantExtractor = tenantExtractor;
+
+            return this;
+        }
+
+        public Builder tenantMinShare(final double tenantMinShare) {
+            this.cacheConfiguration.tenantMinShare = tenantMinShare;
+
+            return this;
+        }
+
+        public Builder tenantMaxShare(final double tenantMaxShare) {
+            this.cacheConfiguration.tenantMaxShare = tenantMaxShare;
+
+            return this;
+        }
+
+        public Builder tenantShare(final String tenant, final double minShare, final double maxShare) {
+            this.cacheConfiguration.tenantShares.put(tenant, new TenantShare(minShare, maxShare));
+
+            return this;
+        }
+
+        public Builder tenantIdleTime(final long tenantIdleTime) {
+            this.cacheConfiguration.tenantIdleTime = tenantIdleTime;
+
+            return this;
+        }
+
+        public Builder traceRecorder(final TraceRecorder traceRecorder) {
+            this.cacheConfiguration.traceRecorder = traceRecorder;
+
+            return this;
+        }
+
         public Builder cacheNullValues(final boolean cacheNulls) {
             this.cacheConfiguration.cacheNullValues = cacheNulls;
 
             return this;
         }
 
+        /**
+         * @throws IllegalArgumentException if the default tenant share is invalid, or if the minimum shares of the
+         *                                  configured tenants add up to more than the whole cache.
+         */
         public CacheConfiguration build() {
+            this.cacheConfiguration.defaultTenantShare = new TenantShare(this.cacheConfiguration.tenantMinShare, this.cacheConfiguration.tenantMaxShare);
+
+            double guaranteedShare = this.cacheConfiguration.tenantShares.values().stream().mapToDouble(TenantShare::minShare).sum();
+
+            if (guaranteedShare > 1.0) {
+                throw new IllegalArgumentException("tenant minimum shares add up to " + guaranteedShare + ", more than 1");
+            }
+
             return this.cacheConfiguration;
         }
     }
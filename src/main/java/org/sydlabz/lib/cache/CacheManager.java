@@ -0,0 +1,129 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates and looks up named caches whose invalidation and data sync work share one bounded maintenance pool, and
+ * whose background reloads share one bounded reload pool; {@link CacheConfiguration#getReloadThreadCount()} only
+ * applies to caches created on their own. Removal listeners without an executor of their own share a third pool, so
+ * that a slow listener never holds up maintenance.
+ * <p>
+ * Every maintenance pass runs for at most {@link CacheConfiguration#getMaintenanceTimeBudget()} before yielding
+ * the thread to the other caches of the manager. A cache shut down directly leaves the manager as if removed.
+ */
+public final class CacheManager {
+    private static final int DEFAULT_MAINTENANCE_THREADS = 2;
+    private static final int DEFAULT_RELOAD_THREADS = 2;
+    private static final int REMOVAL_THREADS = 1;
+
+    private final Map<String, Cache> caches;
+    private final MaintenanceScheduler maintenanceScheduler;
+    private final ThreadPoolExecutor reloadExecutor;
+    private final ScheduledThreadPoolExecutor removalExecutor;
+
+    private volatile boolean active;
+
+    public CacheManager() {
+        this(CacheManager.DEFAULT_MAINTENANCE_THREADS);
+    }
+
+    public CacheManager(final int maintenanceThreads) {
+        this(maintenanceThreads, CacheManager.DEFAULT_RELOAD_THREADS);
+    }
+
+    public CacheManager(final int maintenanceThreads, final int reloadThreads) {
+        if (reloadThreads <= 0) {
+            throw new IllegalArgumentException("reloadThreads must be positive");
+        }
+
+        this.caches = new ConcurrentHashMap<>();
+        this.maintenanceScheduler = new MaintenanceScheduler(maintenanceThreads);
+        this.reloadExecutor = LoadCoordinator.createReloadExecutor(reloadThreads);
+        this.removalExecutor = RemovalDispatcher.createRemovalExecutor(CacheManager.REMOVAL_THREADS);
+        this.active = true;
+    }
+
+    public Cache createCache(final String name, final DataSource dataSource, final CacheConfiguration cacheConfiguration) {
+        this.validateState();
+
+        if (!Util.isUsable(name)) {
+            throw new IllegalArgumentException("cache name undefined");
+        }
+
+        return this.caches.compute(name, (cacheName, existingCache) -> {
+            if (Util.isUsable(existingCache)) {
+                throw new IllegalArgumentException("cache already exists: " + cacheName);
+            }
+
+            return new Cache(cacheName, dataSource, cacheConfiguration, this);
+        });
+    }
+
+    public Optional<Cache> getCache(final String name) {
+        return Optional.ofNullable(this.caches.get(name));
+    }
+
+    public Set<String> getCacheNames() {
+        return Collections.unmodifiableSet(this.caches.keySet());
+    }
+
+    public void removeCache(final String name) {
+        Cache cache = this.caches.remove(name);
+
+        if (Util.isUsable(cache)) {
+            cache.shutdown();
+        }
+    }
+
+    void unregister(final Cache cache) {
+        this.caches.remove(cache.getName(), cache);
+    }
+
+    MaintenanceScheduler getMaintenanceScheduler() {
+        return this.maintenanceScheduler;
+    }
+
+    ThreadPoolExecutor getReloadExecutor() {
+        return this.reloadExecutor;
+    }
+
+    ScheduledThreadPoolExecutor getRemovalExecutor() {
+        return this.removalExecutor;
+    }
+
+    public void shutdown() {
+        this.active = false;
+
+        for (String name : this.caches.keySet()) {
+            this.removeCache(name);
+        }
+
+        this.maintenanceScheduler.shutdown();
+        this.reloadExecutor.shutdown();
+        this.removalExecutor.shutdown();
+    }
+
+    void awaitTermination() {
+        this.maintenanceScheduler.awaitTermination();
+
+        try {
+            this.reloadExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            this.removalExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("unexpected error while waiting for termination");
+        }
+    }
+
+    private void validateState() {
+        if (!this.active) {
+            throw new RuntimeException("createCache called with inactive cache manager");
+        }
+    }
+}
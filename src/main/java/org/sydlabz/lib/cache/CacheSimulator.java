@@ -0,0 +1,137 @@
+package org.sydlabz.lib.cache;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays an access trace through cache configurations to compare their hit ratio, backend loads and eviction
+ * churn.
+ * <p>
+ * Every configuration gets its own cache, backed by a data source that knows every key, and replays the trace on
+ * its own thread, so policies are simulated in parallel while each replay stays deterministic. Timed invalidation
+ * runs on the wall clock and is best disabled unless the trace is replayed in real time.
+ */
+public final class CacheSimulator {
+    private CacheSimulator() {
+    }
+
+    public static List<SimulationResult> simulate(final Trace trace, final Map<String, CacheConfiguration> policies) {
+        List<Map.Entry<String, CacheConfiguration>> entries = new ArrayList<>(policies.entrySet());
+
+        return entries.parallelStream()
+                .map(entry -> CacheSimulator.replay(trace, entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    public static SimulationResult replay(final Trace trace, final String policy, final CacheConfiguration cacheConfiguration) {
+        SimulatedDataSource dataSource = new SimulatedDataSource();
+        CacheManager cacheManager = new CacheManager(1);
+        Cache cache = cacheManager.createCache(policy, dataSource, cacheConfiguration);
+        long requests = 0;
+
+        for (int i = 0; i < trace.length(); i++) {
+            String key = trace.getKey(i);
+
+            switch (trace.getOperation(i)) {
+                case GET -> {
+                    cache.get(key);
+                    requests++;
+                }
+                case PUT -> cache.put(key, new SimulatedData(key));
+                case REMOVE -> cache.remove(key);
+            }
+        }
+
+        long evictions = cache.getEvictionCount();
+
+        cache.shutdown(true, null);
+        cacheManager.shutdown();
+        cacheManager.awaitTermination();
+
+        long loads = dataSource.loads.get();
+
+        return new SimulationResult(policy, requests, requests - loads, loads, dataSource.writes.get(), evictions);
+    }
+
+    /**
+     * Compares every eviction strategy on a trace file or a synthetic workload.
+     * <p>
+     * Usage: {@code CacheSimulator <trace.bin|trace.txt|zipf|scan|loop> <cacheSize> [bucketCount]}
+     */
+    public static void main(final String[] args) {
+        if (args.length < 2) {
+            System.out.println("usage: CacheSimulator <trace.bin|trace.txt|zipf|scan|loop> <cacheSize> [bucketCount]");
+
+            return;
+        }
+
+        int cacheSize = Integer.parseInt(args[1]);
+        int bucketCount = args.length > 2 ? Integer.parseInt(args[2]) : Util.BUCKET_COUNT;
+        Trace trace = CacheSimulator.trace(args[0], cacheSize);
+        Map<String, CacheConfiguration> policies = new LinkedHashMap<>();
+
+        for (EvictionStrategy evictionStrategy : EvictionStrategy.values()) {
+            policies.put(evictionStrategy.name(), new CacheConfiguration.Builder()
+                    .cacheSize(cacheSize)
+                    .bucketCount(bucketCount)
+                    .isInvalidationEnabled(false)
+                    .writeStrategy(WriteStrategy.NO_WRITE)
+                    .evictionStrategy(evictionStrategy)
+                    .build());
+        }
+
+        System.out.println("Trace: " + args[0] + " (" + trace.length() + " accesses)");
+        System.out.println("Cache Size: " + cacheSize + ", Bucket Count: " + bucketCount);
+        CacheSimulator.simulate(trace, policies).forEach(System.out::println);
+    }
+
+    private static Trace trace(final String source, final int cacheSize) {
+        int keyCount = cacheSize * 10;
+        int length = keyCount * 20;
+
+        return switch (source) {
+            case "zipf" -> TraceGenerator.zipf(keyCount, length, 0.9, 42L);
+            case "scan" -> TraceGenerator.concat(TraceGenerator.zipf(keyCount, length / 2, 0.9, 42L), TraceGenerator.scan(keyCount, keyCount), TraceGenerator.zipf(keyCount, length / 2, 0.9, 43L));
+            case "loop" -> TraceGenerator.loop(cacheSize + cacheSize / 2, length);
+            default -> source.endsWith(".txt") ? Trace.readText(Path.of(source)) : Trace.readBinary(Path.of(source));
+        };
+    }
+
+    private record SimulatedData(String key) implements Cacheable {
+    }
+
+    private static final class SimulatedDataSource implements DataSource {
+        private final AtomicLong loads = new AtomicLong(0L);
+        private final AtomicLong writes = new AtomicLong(0L);
+
+        @Override
+        public Cacheable load(final String key) {
+            this.loads.incrementAndGet();
+
+            return new SimulatedData(key);
+        }
+
+        @Override
+        public String getName() {
+            return "simulated";
+        }
+
+        @Override
+        public void save(final String key, final Cacheable data) {
+            this.writes.incrementAndGet();
+        }
+
+        @Override
+        public void update(final String key, final Cacheable data) {
+            this.writes.incrementAndGet();
+        }
+
+        @Override
+        public void sync() {
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.sydlabz.lib.cache;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+
+final class CacheView<T> extends AbstractCollection<T> {
+    private final BucketMap bucketMap;
+    private final Function<Cached, T> mapper;
+
+    CacheView(final BucketMap bucketMap, final Function<Cached, T> mapper) {
+        this.bucketMap = bucketMap;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Spliterators.iterator(this.spliterator());
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new BucketSpliterator<>(this.bucketMap.getBuckets().toArray(new Bucket[0]), this.mapper);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0L, this.bucketMap.getCachedRecordsCount()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.bucketMap.isEmpty();
+    }
+}
@@ -0,0 +1,123 @@
+package org.sydlabz.lib.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Preloads a cache from its data source.
+ * <p>
+ * Keys are read from the stream in chunks, each chunk is loaded with {@link DataSource#loadAll} on a dedicated
+ * fork-join pool and inserted bucket by bucket. A bounded number of chunks is in flight, so the key stream is never
+ * materialized. Records are inserted as is: no write strategy runs, nothing is evicted, and the warm-up stops once
+ * the cache is full.
+ */
+final class CacheWarmer {
+    private final BucketMap bucketMap;
+    private final DataSource dataSource;
+    private final CacheConfiguration cacheConfiguration;
+    private final AtomicLong requestedCount;
+    private final AtomicLong loadedCount;
+    private final AtomicLong insertedCount;
+    private final AtomicReference<RuntimeException> failure;
+
+    CacheWarmer(final BucketMap bucketMap, final DataSource dataSource, final CacheConfiguration cacheConfiguration) {
+        this.bucketMap = bucketMap;
+        this.dataSource = dataSource;
+        this.cacheConfiguration = cacheConfiguration;
+        this.requestedCount = new AtomicLong(0L);
+        this.loadedCount = new AtomicLong(0L);
+        this.insertedCount = new AtomicLong(0L);
+        this.failure = new AtomicReference<>();
+    }
+
+    WarmUpProgress warmUp(final Stream<String> keys, final Consumer<WarmUpProgress> progressListener) {
+        int parallelism = Math.max(1, this.cacheConfiguration.getWarmUpParallelism());
+        int chunkSize = Math.max(1, this.cacheConfiguration.getWarmUpChunkSize());
+        int window = parallelism * 2;
+        Semaphore inFlight = new Semaphore(window);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try (keys) {
+            Iterator<String> iterator = keys.iterator();
+            List<String> chunk = new ArrayList<>(chunkSize);
+
+            while (iterator.hasNext() && !this.isDone()) {
+                chunk.add(iterator.next());
+
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    List<String> submittedChunk = chunk;
+
+                    this.requestedCount.addAndGet(submittedChunk.size());
+                    inFlight.acquireUninterruptibly();
+                    pool.execute(() -> {
+                        try {
+                            this.warmUp(submittedChunk, progressListener);
+                        } catch (RuntimeException ex) {
+                            this.failure.compareAndSet(null, ex);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            inFlight.acquireUninterruptibly(window);
+        } finally {
+            pool.shutdown();
+        }
+
+        if (Util.isUsable(this.failure.get())) {
+            throw this.failure.get();
+        }
+
+        return this.getProgress();
+    }
+
+    private boolean isDone() {
+        return Util.isUsable(this.failure.get()) || this.bucketMap.getCachedRecordsCount() >= this.cacheConfiguration.getCacheSize();
+    }
+
+    private void warmUp(final List<String> chunk, final Consumer<WarmUpProgress> progressListener) {
+        if (this.isDone()) {
+            return;
+        }
+
+        List<String> absentKeys = new ArrayList<>(chunk.size());
+
+        for (String key : chunk) {
+            if (Util.isUsable(key) && !Util.isUsable(this.bucketMap.getOnly(key))) {
+                absentKeys.add(key);
+            }
+        }
+
+        List<Cached> cachedRecords = new ArrayList<>(absentKeys.size());
+
+        for (Map.Entry<String, Cacheable> entry : this.dataSource.loadAll(absentKeys).entrySet()) {
+            if (Util.isUsable(entry.getValue()) || this.cacheConfiguration.isCacheNullValues()) {
+                cachedRecords.add(new Cached(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        this.loadedCount.addAndGet(cachedRecords.size());
+        this.insertedCount.addAndGet(this.bucketMap.putAll(cachedRecords, this.cacheConfiguration.getCacheSize()));
+
+        if (Util.isUsable(progressListener)) {
+            synchronized (this) {
+                progressListener.accept(this.getProgress());
+            }
+        }
+    }
+
+    private WarmUpProgress getProgress() {
+        return new WarmUpProgress(this.requestedCount.get(), this.loadedCount.get(), this.insertedCount.get());
+    }
+}
@@ -0,0 +1,10 @@
+package org.sydlabz.lib.cache;
+
+/**
+ * Converts cached data to bytes and back, for data sources that store it themselves.
+ */
+public interface CacheableCodec {
+    byte[] encode(Cacheable data);
+
+    Cacheable decode(byte[] bytes);
+}
@@ -2,29 +2,46 @@ package org.sydlabz.lib.cache;
 
 import java.util.Comparator;
 
+/**
+ * A cached record. The access count shares a long with the last access time: the time in milliseconds takes the
+ * high bits and the count, saturating at {@link #MAX_ACCESS_COUNT}, the low {@link #FREQUENCY_BITS}. Times stay
+ * absolute: int offsets from a bucket epoch would not make an aligned record any smaller.
+ */
 final class Cached {
+    private static final String[] NO_TAGS = new String[0];
+    private static final int FREQUENCY_BITS = 20;
+    private static final long MAX_ACCESS_COUNT = (1L << Cached.FREQUENCY_BITS) - 1;
+
     private final String recordKey;
-    private final Cacheable cachedData;
+    private final String[] tags;
+    private volatile Cacheable cachedData;
 
-    private final long createdTime;
-    private long lastAccessedTime;
-    private long accessCount;
+    private long createdTime;
+    private long accessState;
 
     Cached(final String recordKey, final Cacheable cachedData) {
+        this(recordKey, cachedData, Cached.NO_TAGS);
+    }
+
+    Cached(final String recordKey, final Cacheable cachedData, final String[] tags) {
         this.recordKey = recordKey;
+        this.tags = Util.isUsable(tags) ? tags : Cached.NO_TAGS;
         this.cachedData = cachedData;
         this.createdTime = System.currentTimeMillis();
-        this.lastAccessedTime = createdTime;
-        this.accessCount = 1L;
+        this.accessState = Cached.pack(this.createdTime, 1L);
+    }
+
+    private static long pack(final long accessedTime, final long accessCount) {
+        return accessedTime << Cached.FREQUENCY_BITS | Math.min(accessCount, Cached.MAX_ACCESS_COUNT);
     }
 
     public static Comparator<Cached> getComparator(final EvictionStrategy evictionStrategy) {
         if (EvictionStrategy.FIFO == evictionStrategy) {
-            return (cachedRecord1, cachedRecord2) -> Math.toIntExact(cachedRecord1.getCreatedTime() - cachedRecord2.getCreatedTime());
+            return (cachedRecord1, cachedRecord2) -> Long.compare(cachedRecord1.getCreatedTime(), cachedRecord2.getCreatedTime());
         } else if (EvictionStrategy.LRU == evictionStrategy) {
-            return (cachedRecord1, cachedRecord2) -> Math.toIntExact(cachedRecord1.getLastAccessedTime() - cachedRecord2.getLastAccessedTime());
+            return (cachedRecord1, cachedRecord2) -> Long.compare(cachedRecord1.getLastAccessedTime(), cachedRecord2.getLastAccessedTime());
         } else if (EvictionStrategy.LFU == evictionStrategy) {
-            return (cachedRecord1, cachedRecord2) -> Math.toIntExact(cachedRecord1.getAccessCount() - cachedRecord2.getAccessCount());
+            return (cachedRecord1, cachedRecord2) -> Long.compare(cachedRecord1.getAccessCount(), cachedRecord2.getAccessCount());
         }
 
         return null;
@@ -34,6 +51,20 @@ final class Cached {
         return this.recordKey;
     }
 
+    String[] getTags() {
+        return this.tags;
+    }
+
+    boolean hasTag(final String tag) {
+        for (String value : this.tags) {
+            if (value.equals(tag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public Cacheable getCachedData() {
         return this.cachedData;
     }
@@ -43,22 +74,38 @@ final class Cached {
     }
 
     public long getLastAccessedTime() {
-        return this.lastAccessedTime;
+        return this.accessState >>> Cached.FREQUENCY_BITS;
     }
 
     public long getAccessCount() {
-        return this.accessCount;
+        return this.accessState & Cached.MAX_ACCESS_COUNT;
     }
 
     public void setAccessCount(long accessCount) {
-        this.accessCount = accessCount;
+        this.accessState = Cached.pack(this.getLastAccessedTime(), accessCount);
+    }
+
+    void update(final Cacheable cachedData) {
+        this.cachedData = cachedData;
+        this.createdTime = System.currentTimeMillis();
+        this.accessState = Cached.pack(this.createdTime, this.getAccessCount() + 1);
+    }
+
+    void renew() {
+        this.createdTime = System.currentTimeMillis();
     }
 
-    void incrementAccessCount() {
-        this.accessCount++;
+    /**
+     * Counts an access and moves the last access time to now, in a single write.
+     */
+    void recordAccess() {
+        this.recordAccesses(1);
     }
 
-    void setLastAccessedTime() {
-        this.lastAccessedTime = System.currentTimeMillis();
+    /**
+     * Counts several accesses at once, as when one read stands for a sample of reads.
+     */
+    void recordAccesses(final int accessCount) {
+        this.accessState = Cached.pack(System.currentTimeMillis(), this.getAccessCount() + accessCount);
     }
 }
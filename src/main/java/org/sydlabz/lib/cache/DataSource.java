@@ -1,13 +1,54 @@
 package org.sydlabz.lib.cache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
 public interface DataSource {
     Cacheable load(String key);
 
+    /**
+     * Loads several keys at once; data sources able to batch reads should override it.
+     *
+     * @return the data of each key, null for keys without data.
+     */
+    default Map<String, Cacheable> loadAll(Collection<String> keys) {
+        Map<String, Cacheable> data = new LinkedHashMap<>();
+
+        for (String key : keys) {
+            data.put(key, this.load(key));
+        }
+
+        return data;
+    }
+
+    /**
+     * Enumerates every key of the data source, used to warm up a cache with the whole dataset.
+     */
+    default Stream<String> keys() {
+        throw new UnsupportedOperationException(this.getName() + " cannot enumerate its keys");
+    }
+
     String getName();
 
     void save(String key, Cacheable data);
 
     void update(String key, Cacheable data);
 
+    /**
+     * Saves several records at once; data sources able to batch writes should override it.
+     */
+    default void saveAll(Map<String, Cacheable> data) {
+        data.forEach(this::save);
+    }
+
+    /**
+     * Updates several records at once; data sources able to batch writes should override it.
+     */
+    default void updateAll(Map<String, Cacheable> data) {
+        data.forEach(this::update);
+    }
+
     void sync();
 }
@@ -0,0 +1,7 @@
+package org.sydlabz.lib.cache;
+
+public class DataSourceBusyException extends RuntimeException {
+    public DataSourceBusyException(final String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,313 @@
 package org.sydlabz.lib.cache;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
-final class DataStore extends ConcurrentHashMap<String, Cached> {
+/**
+ * Open-addressing table holding the records of one bucket.
+ * <p>
+ * Keys are not stored separately: a slot references the cached record, which carries its key, and a parallel
+ * {@code int[]} keeps the key hashes so that probing rarely dereferences a record. Removed slots become tombstones
+ * until the next rehash.
+ * <p>
+ * Mutations must be made while the owning bucket is locked. Reads are lock-free: a record is published with a
+ * volatile write to its slot after its hash, and a rehash builds a complete new table before publishing it.
+ * Iteration is weakly consistent.
+ */
+final class DataStore implements Iterable<Cached> {
+    private static final Cached TOMBSTONE = new Cached("", null);
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
 
+    private volatile Table table;
+    private volatile int size;
+    private int tombstones;
+
+    DataStore() {
+        this.table = new Table(DataStore.INITIAL_CAPACITY);
+        this.size = 0;
+        this.tombstones = 0;
+    }
+
+    private static int spread(final String recordKey) {
+        int hash = recordKey.hashCode();
+
+        return hash ^ (hash >>> 16);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    Cached get(final String recordKey) {
+        Table currentTable = this.table;
+        int index = currentTable.find(recordKey, DataStore.spread(recordKey));
+
+        return index < 0 ? null : currentTable.slots.get(index);
+    }
+
+    Cached put(final String recordKey, final Cached cachedRecord) {
+        Table currentTable = this.table;
+        int hash = DataStore.spread(recordKey);
+        int mask = currentTable.mask();
+        int index = hash & mask;
+        int freeIndex = -1;
+
+        while (true) {
+            Cached slot = currentTable.slots.get(index);
+
+            if (slot == null) {
+                break;
+            } else if (slot == DataStore.TOMBSTONE) {
+                if (freeIndex < 0) {
+                    freeIndex = index;
+                }
+            } else if (currentTable.hashes[index] == hash && slot.getRecordKey().equals(recordKey)) {
+                currentTable.slots.set(index, cachedRecord);
+
+                return slot;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        if (freeIndex >= 0) {
+            this.tombstones--;
+        } else {
+            freeIndex = index;
+        }
+
+        currentTable.hashes[freeIndex] = hash;
+        currentTable.slots.set(freeIndex, cachedRecord);
+        this.size++;
+
+        if (this.size + this.tombstones > currentTable.capacity() * DataStore.LOAD_FACTOR) {
+            this.rehash();
+        }
+
+        return null;
+    }
+
+    Cached remove(final String recordKey) {
+        Table currentTable = this.table;
+        int index = currentTable.find(recordKey, DataStore.spread(recordKey));
+
+        return index < 0 ? null : this.removeAt(currentTable, index);
+    }
+
+    boolean remove(final String recordKey, final Cached cachedRecord) {
+        Table currentTable = this.table;
+        int index = currentTable.find(recordKey, DataStore.spread(recordKey));
+
+        if (index < 0 || currentTable.slots.get(index) != cachedRecord) {
+            return false;
+        }
+
+        this.removeAt(currentTable, index);
+
+        return true;
+    }
+
+    private Cached removeAt(final Table currentTable, final int index) {
+        Cached removedRecord = currentTable.slots.get(index);
+
+        currentTable.slots.set(index, DataStore.TOMBSTONE);
+        this.size--;
+        this.tombstones++;
+
+        return removedRecord;
+    }
+
+    private void rehash() {
+        Table currentTable = this.table;
+        int capacity = currentTable.capacity();
+
+        while (this.size >= capacity * DataStore.LOAD_FACTOR / 2) {
+            capacity <<= 1;
+        }
+
+        Table freshTable = new Table(Math.max(DataStore.INITIAL_CAPACITY, capacity));
+
+        for (int i = 0; i < currentTable.capacity(); i++) {
+            Cached slot = currentTable.slots.get(i);
+
+            if (slot != null && slot != DataStore.TOMBSTONE) {
+                freshTable.insert(currentTable.hashes[i], slot);
+            }
+        }
+
+        this.tombstones = 0;
+        this.table = freshTable;
+    }
+
+    /**
+     * Iterates the records present when the iteration started; {@link Iterator#remove()} needs the bucket lock.
+     */
+    @Override
+    public Iterator<Cached> iterator() {
+        Table currentTable = this.table;
+
+        return new Iterator<>() {
+            private int index = 0;
+            private Cached next = this.advance();
+            private Cached last = null;
+
+            private Cached advance() {
+                while (this.index < currentTable.capacity()) {
+                    Cached slot = currentTable.slots.get(this.index++);
+
+                    if (slot != null && slot != DataStore.TOMBSTONE) {
+                        return slot;
+                    }
+                }
+
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.next != null;
+            }
+
+            @Override
+            public Cached next() {
+                if (this.next == null) {
+                    throw new NoSuchElementException();
+                }
+
+                this.last = this.next;
+                this.next = this.advance();
+
+                return this.last;
+            }
+
+            @Override
+            public void remove() {
+                if (this.last == null) {
+                    throw new IllegalStateException();
+                }
+
+                DataStore.this.remove(this.last.getRecordKey(), this.last);
+                this.last = null;
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<Cached> spliterator() {
+        Table currentTable = this.table;
+
+        return new SlotSpliterator(currentTable, 0, currentTable.capacity(), this.size);
+    }
+
+    private static final class Table {
+        private final int[] hashes;
+        private final AtomicReferenceArray<Cached> slots;
+
+        private Table(final int capacity) {
+            this.hashes = new int[capacity];
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        private int capacity() {
+            return this.hashes.length;
+        }
+
+        private int mask() {
+            return this.hashes.length - 1;
+        }
+
+        private int find(final String recordKey, final int hash) {
+            int mask = this.mask();
+            int index = hash & mask;
+
+            for (int probes = 0; probes <= mask; probes++) {
+                Cached slot = this.slots.get(index);
+
+                if (slot == null) {
+                    return -1;
+                } else if (slot != DataStore.TOMBSTONE && this.hashes[index] == hash && slot.getRecordKey().equals(recordKey)) {
+                    return index;
+                }
+
+                index = (index + 1) & mask;
+            }
+
+            return -1;
+        }
+
+        private void insert(final int hash, final Cached cachedRecord) {
+            int mask = this.mask();
+            int index = hash & mask;
+
+            while (this.slots.get(index) != null) {
+                index = (index + 1) & mask;
+            }
+
+            this.hashes[index] = hash;
+            this.slots.set(index, cachedRecord);
+        }
+    }
+
+    private static final class SlotSpliterator implements Spliterator<Cached> {
+        private final Table table;
+        private final int fence;
+        private final int sizeEstimate;
+
+        private int index;
+
+        private SlotSpliterator(final Table table, final int origin, final int fence, final int sizeEstimate) {
+            this.table = table;
+            this.index = origin;
+            this.fence = fence;
+            this.sizeEstimate = sizeEstimate;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super Cached> action) {
+            while (this.index < this.fence) {
+                Cached slot = this.table.slots.get(this.index++);
+
+                if (slot != null && slot != DataStore.TOMBSTONE) {
+                    action.accept(slot);
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public Spliterator<Cached> trySplit() {
+            int middle = (this.index + this.fence) >>> 1;
+
+            if (middle <= this.index) {
+                return null;
+            }
+
+            SlotSpliterator prefix = new SlotSpliterator(this.table, this.index, middle, this.sizeEstimate);
+
+            this.index = middle;
+
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return (long) this.sizeEstimate * (this.fence - this.index) / Math.max(1, this.table.capacity());
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
 }
@@ -1,36 +1,55 @@
 package org.sydlabz.lib.cache;
 
-import java.util.LinkedList;
-import java.util.TimerTask;
+import java.util.Queue;
 
-final class DataSyncTask extends TimerTask {
-    private final LinkedList<DataSourceItem> dataSyncQueue;
+final class DataSyncTask extends MaintenanceTask {
+    private final Queue<DataSourceItem> dataSyncQueue;
     private final DataSource dataSource;
 
-    DataSyncTask(final LinkedList<DataSourceItem> dataSyncQueue, final DataSource dataSource) {
+    DataSyncTask(final Queue<DataSourceItem> dataSyncQueue, final DataSource dataSource, final MaintenanceScheduler scheduler, final long timeBudget) {
+        super(scheduler, timeBudget);
         this.dataSyncQueue = dataSyncQueue;
         this.dataSource = dataSource;
     }
 
     @Override
-    public void run() {
-        this.doDataSync();
+    void begin() {
+    }
+
+    @Override
+    boolean step() {
+        return this.syncNext();
     }
 
     synchronized void doDataSync() {
-        if (this.dataSyncQueue.isEmpty()) {
-            return;
+        boolean pending = this.syncNext();
+
+        while (pending) {
+            pending = this.syncNext();
+        }
+    }
+
+    /**
+     * Writes the oldest item to the data source, and removes it from the queue only once written, so that an item
+     * the data source fails to take is retried.
+     */
+    private synchronized boolean syncNext() {
+        DataSourceItem dataSourceItem = this.dataSyncQueue.peek();
+
+        if (!Util.isUsable(dataSourceItem)) {
+            return false;
+        }
+
+        Cached cachedRecord = dataSourceItem.cachedRecord();
+
+        if (dataSourceItem.isUpdate()) {
+            this.dataSource.update(cachedRecord.getRecordKey(), cachedRecord.getCachedData());
+        } else {
+            this.dataSource.save(cachedRecord.getRecordKey(), cachedRecord.getCachedData());
         }
 
-        this.dataSyncQueue.forEach(dataSourceItem -> {
-            Cached cachedRecord = dataSourceItem.cachedRecord();
+        this.dataSyncQueue.poll();
 
-            if (dataSourceItem.isUpdate()) {
-                this.dataSource.update(cachedRecord.getRecordKey(), cachedRecord.getCachedData());
-            } else {
-                this.dataSource.save(cachedRecord.getRecordKey(), cachedRecord.getCachedData());
-            }
-        });
-        this.dataSyncQueue.clear();
+        return true;
     }
 }
@@ -0,0 +1,76 @@
+package org.sydlabz.lib.cache;
+
+/**
+ * Limits of a diagnostics export, see {@link Cache#writeDiagnostics(java.io.Writer, DiagnosticsOptions)}.
+ */
+public final class DiagnosticsOptions {
+    private static final DiagnosticsOptions defaultDiagnosticsOptions = new DiagnosticsOptions();
+
+    private boolean bucketsIncluded;
+    private int maxBuckets;
+    private int sampledEntriesPerBucket;
+    private boolean entryDataIncluded;
+
+    private DiagnosticsOptions() {
+        this.bucketsIncluded = true;
+        this.maxBuckets = Integer.MAX_VALUE;
+        this.sampledEntriesPerBucket = 0;
+        this.entryDataIncluded = false;
+    }
+
+    public static DiagnosticsOptions getDefaultOptions() {
+        return DiagnosticsOptions.defaultDiagnosticsOptions;
+    }
+
+    public boolean isBucketsIncluded() {
+        return this.bucketsIncluded;
+    }
+
+    public int getMaxBuckets() {
+        return this.maxBuckets;
+    }
+
+    public int getSampledEntriesPerBucket() {
+        return this.sampledEntriesPerBucket;
+    }
+
+    public boolean isEntryDataIncluded() {
+        return this.entryDataIncluded;
+    }
+
+    public static class Builder {
+        private final DiagnosticsOptions diagnosticsOptions;
+
+        public Builder() {
+            this.diagnosticsOptions = new DiagnosticsOptions();
+        }
+
+        public Builder bucketsIncluded(final boolean bucketsIncluded) {
+            this.diagnosticsOptions.bucketsIncluded = bucketsIncluded;
+
+            return this;
+        }
+
+        public Builder maxBuckets(final int maxBuckets) {
+            this.diagnosticsOptions.maxBuckets = maxBuckets;
+
+            return this;
+        }
+
+        public Builder sampledEntriesPerBucket(final int sampledEntriesPerBucket) {
+            this.diagnosticsOptions.sampledEntriesPerBucket = sampledEntriesPerBucket;
+
+            return this;
+        }
+
+        public Builder entryDataIncluded(final boolean entryDataIncluded) {
+            this.diagnosticsOptions.entryDataIncluded = entryDataIncluded;
+
+            return this;
+        }
+
+        public DiagnosticsOptions build() {
+            return this.diagnosticsOptions;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.sydlabz.lib.cache;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * Streams the state of a cache as JSON, one bucket at a time, so that the output never has to fit in memory.
+ * <p>
+ * Buckets are read without locking them: sizes and sampled entries are a weakly consistent snapshot.
+ */
+final class DiagnosticsWriter {
+    private final JsonWriter jsonWriter;
+    private final DiagnosticsOptions diagnosticsOptions;
+
+    DiagnosticsWriter(final Writer writer, final DiagnosticsOptions diagnosticsOptions) {
+        this.jsonWriter = new JsonWriter(writer);
+        this.jsonWriter.setIndent("  ");
+        this.diagnosticsOptions = diagnosticsOptions;
+    }
+
+    void write(final String name, final CacheConfiguration cacheConfiguration, final BucketMap bucketMap, final List<HotKey> hotKeys) throws IOException {
+        this.jsonWriter.beginObject();
+        this.jsonWriter.name("name").value(name);
+        this.jsonWriter.name("size").value(bucketMap.getCachedRecordsCount());
+        this.writeConfiguration(cacheConfiguration);
+        this.writeHotKeys(hotKeys);
+        this.writeBuckets(bucketMap);
+        this.jsonWriter.endObject();
+        this.jsonWriter.flush();
+    }
+
+    private void writeConfiguration(final CacheConfiguration cacheConfiguration) throws IOException {
+        this.jsonWriter.name("configuration").beginObject();
+        this.jsonWriter.name("cacheSize").value(cacheConfiguration.getCacheSize());
+        this.jsonWriter.name("bucketCount").value(cacheConfiguration.getBucketCount());
+        this.jsonWriter.name("evictionStrategy").value(cacheConfiguration.getEvictionStrategy().name());
+        this.jsonWriter.name("invalidationEnabled").value(cacheConfiguration.isInvalidationEnabled());
+        this.jsonWriter.name("invalidationStrategy").value(cacheConfiguration.getInvalidationStrategy().name());
+        this.jsonWriter.name("invalidationLifeTime").value(cacheConfiguration.getInvalidationLifeTime());
+        this.jsonWriter.name("writeStrategy").value(cacheConfiguration.getWriteStrategy().name());
+        this.jsonWriter.endObject();
+    }
+
+    private void writeHotKeys(final List<HotKey> hotKeys) throws IOException {
+        this.jsonWriter.name("hotKeys").beginArray();
+
+        for (HotKey hotKey : hotKeys) {
+            this.jsonWriter.beginObject();
+            this.jsonWriter.name("key").value(hotKey.key());
+            this.jsonWriter.name("estimatedCount").value(hotKey.estimatedCount());
+            this.jsonWriter.name("maximumError").value(hotKey.maximumError());
+            this.jsonWriter.endObject();
+        }
+
+        this.jsonWriter.endArray();
+    }
+
+    private void writeBuckets(final BucketMap bucketMap) throws IOException {
+        int bucketCount = 0;
+        int emptyBuckets = 0;
+        int minimumSize = Integer.MAX_VALUE;
+        int maximumSize = 0;
+        long totalSize = 0;
+
+        if (this.diagnosticsOptions.isBucketsIncluded()) {
+            this.jsonWriter.name("buckets").beginArray();
+        }
+
+        for (Bucket bucket : bucketMap.getBuckets()) {
+            int size = bucket.size();
+
+            if (this.diagnosticsOptions.isBucketsIncluded() && bucketCount < this.diagnosticsOptions.getMaxBuckets()) {
+                this.writeBucket(bucketCount, size, bucket);
+            }
+
+            bucketCount++;
+            emptyBuckets += size == 0 ? 1 : 0;
+            minimumSize = Math.min(minimumSize, size);
+            maximumSize = Math.max(maximumSize, size);
+            totalSize += size;
+        }
+
+        if (this.diagnosticsOptions.isBucketsIncluded()) {
+            this.jsonWriter.endArray();
+        }
+
+        this.jsonWriter.name("bucketStatistics").beginObject();
+        this.jsonWriter.name("count").value(bucketCount);
+        this.jsonWriter.name("empty").value(emptyBuckets);
+        this.jsonWriter.name("minimumSize").value(bucketCount == 0 ? 0 : minimumSize);
+        this.jsonWriter.name("maximumSize").value(maximumSize);
+        this.jsonWriter.name("meanSize").value(bucketCount == 0 ? 0.0 : (double) totalSize / bucketCount);
+        this.jsonWriter.endObject();
+    }
+
+    private void writeBucket(final int index, final int size, final Bucket bucket) throws IOException {
+        this.jsonWriter.beginObject();
+        this.jsonWriter.name("index").value(index);
+        this.jsonWriter.name("size").value(size);
+
+        if (this.diagnosticsOptions.getSampledEntriesPerBucket() > 0) {
+            this.jsonWriter.name("entries").beginArray();
+
+            Spliterator<Cached> records = bucket.spliterator();
+
+            try {
+                for (int i = 0; i < this.diagnosticsOptions.getSampledEntriesPerBucket(); i++) {
+                    if (!records.tryAdvance(this::writeEntry)) {
+                        break;
+                    }
+                }
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+
+            this.jsonWriter.endArray();
+        }
+
+        this.jsonWriter.endObject();
+        this.jsonWriter.flush();
+    }
+
+    private void writeEntry(final Cached cachedRecord) {
+        try {
+            this.jsonWriter.beginObject();
+            this.jsonWriter.name("key").value(cachedRecord.getRecordKey());
+            this.jsonWriter.name("createdTime").value(Util.time(cachedRecord.getCreatedTime()));
+            this.jsonWriter.name("lastAccessedTime").value(Util.time(cachedRecord.getLastAccessedTime()));
+            this.jsonWriter.name("accessCount").value(cachedRecord.getAccessCount());
+
+            if (this.diagnosticsOptions.isEntryDataIncluded()) {
+                Cacheable data = cachedRecord.getCachedData();
+
+                this.jsonWriter.name("data");
+
+                if (Util.isUsable(data)) {
+                    Util.toJson(data, this.jsonWriter);
+                } else {
+                    this.jsonWriter.nullValue();
+                }
+            }
+
+            this.jsonWriter.endObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.sydlabz.lib.cache;
+
+/**
+ * Structure kept consistent with the records of a cache.
+ * <p>
+ * Both callbacks run while the bucket of the record is locked and must not call back into the cache. A replaced
+ * record is reported as removed with its old data before it is reported as inserted with its new data.
+ */
+abstract class EntryIndex {
+    abstract void onInsert(Cached cachedRecord);
+
+    abstract void onRemove(Cached cachedRecord);
+}
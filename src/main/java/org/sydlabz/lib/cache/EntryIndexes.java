@@ -0,0 +1,51 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write array of indexes, iterated without allocating an iterator on every record change.
+ */
+final class EntryIndexes extends EntryIndex {
+    private volatile EntryIndex[] entryIndexes;
+
+    EntryIndexes() {
+        this.entryIndexes = new EntryIndex[0];
+    }
+
+    synchronized void register(final EntryIndex entryIndex) {
+        EntryIndex[] freshIndexes = Arrays.copyOf(this.entryIndexes, this.entryIndexes.length + 1);
+
+        freshIndexes[freshIndexes.length - 1] = entryIndex;
+        this.entryIndexes = freshIndexes;
+    }
+
+    synchronized void unregister(final EntryIndex entryIndex) {
+        EntryIndex[] currentIndexes = this.entryIndexes;
+
+        for (int i = 0; i < currentIndexes.length; i++) {
+            if (currentIndexes[i] == entryIndex) {
+                EntryIndex[] freshIndexes = new EntryIndex[currentIndexes.length - 1];
+
+                System.arraycopy(currentIndexes, 0, freshIndexes, 0, i);
+                System.arraycopy(currentIndexes, i + 1, freshIndexes, i, freshIndexes.length - i);
+                this.entryIndexes = freshIndexes;
+
+                return;
+            }
+        }
+    }
+
+    @Override
+    void onInsert(final Cached cachedRecord) {
+        for (EntryIndex entryIndex : this.entryIndexes) {
+            entryIndex.onInsert(cachedRecord);
+        }
+    }
+
+    @Override
+    void onRemove(final Cached cachedRecord) {
+        for (EntryIndex entryIndex : this.entryIndexes) {
+            entryIndex.onRemove(cachedRecord);
+        }
+    }
+}
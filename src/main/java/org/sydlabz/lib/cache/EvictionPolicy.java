@@ -0,0 +1,32 @@
+package org.sydlabz.lib.cache;
+
+abstract class EvictionPolicy {
+    static EvictionPolicy of(final CacheConfiguration cacheConfiguration, final DataStore dataStore) {
+        EvictionStrategy evictionStrategy = cacheConfiguration.getEvictionStrategy();
+
+        if (EvictionStrategy.ADAPTIVE == evictionStrategy) {
+            return new AdaptiveEvictionQueue(cacheConfiguration.getAdaptiveGhostRatio());
+        } else if (EvictionStrategy.RANDOM == evictionStrategy) {
+            return new SampledEviction(dataStore, cacheConfiguration.getEvictionSampleCriterion(), cacheConfiguration.getEvictionSampleSize());
+        }
+
+        return new EvictionQueue(evictionStrategy);
+    }
+
+    abstract void offer(Cached cachedRecord);
+
+    abstract void access(Cached cachedRecord);
+
+    /**
+     * Takes the place of a record replaced by a new one under the same key, as an access to the key.
+     */
+    void replace(final Cached previousRecord, final Cached freshRecord) {
+        this.access(freshRecord);
+    }
+
+    abstract void remove(Cached cachedRecord);
+
+    abstract void remove(String recordKey);
+
+    abstract Cached poll();
+}
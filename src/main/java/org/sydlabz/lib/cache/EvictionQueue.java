@@ -1,39 +1,75 @@
 package org.sydlabz.lib.cache;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.PriorityQueue;
 import java.util.Queue;
 
-public class EvictionQueue {
-    private static final Queue<Cached> waitingQueue = new LinkedList<>();
+public class EvictionQueue extends EvictionPolicy {
     private static final int LIMIT = 100;
 
+    private final Queue<Cached> waitingQueue;
     private final PriorityQueue<Cached> priorityQueue;
 
     EvictionQueue(final EvictionStrategy evictionStrategy) {
+        this.waitingQueue = new LinkedList<>();
         this.priorityQueue = new PriorityQueue<>(Cached.getComparator(evictionStrategy));
     }
 
+    /**
+     * Records do not override {@code equals}, so the record is found by identity.
+     */
+    @Override
     synchronized void remove(final Cached cachedRecord) {
-        this.remove(cachedRecord.getRecordKey());
+        if (this.priorityQueue.remove(cachedRecord) && this.priorityQueue.isEmpty()) {
+            this.waitingQueueToPriorityQueue();
+        }
     }
 
-    public void remove(String recordKey) {
-        boolean removed = this.priorityQueue.removeIf(cached -> cached.getRecordKey().equals(recordKey));
+    @Override
+    public synchronized void remove(String recordKey) {
+        Iterator<Cached> iterator = this.priorityQueue.iterator();
 
-        if (removed && this.priorityQueue.isEmpty()) {
-            this.waitingQueueToPriorityQueue();
+        while (iterator.hasNext()) {
+            if (iterator.next().getRecordKey().equals(recordKey)) {
+                iterator.remove();
+
+                if (this.priorityQueue.isEmpty()) {
+                    this.waitingQueueToPriorityQueue();
+                }
+
+                return;
+            }
         }
     }
 
+    @Override
     synchronized void offer(final Cached cachedRecord) {
         if (this.priorityQueue.size() == EvictionQueue.LIMIT) {
-            EvictionQueue.waitingQueue.offer(cachedRecord);
+            this.waitingQueue.offer(cachedRecord);
         } else {
             this.priorityQueue.offer(cachedRecord);
         }
     }
 
+    /**
+     * Reorders a record of the priority queue. A record still in the waiting queue keeps its place there, as it is
+     * ordered when it moves to the priority queue, so accessing it neither allocates nor queues it twice.
+     */
+    @Override
+    synchronized void access(final Cached cachedRecord) {
+        if (this.priorityQueue.remove(cachedRecord)) {
+            this.priorityQueue.offer(cachedRecord);
+        }
+    }
+
+    @Override
+    synchronized void replace(final Cached previousRecord, final Cached freshRecord) {
+        this.remove(previousRecord);
+        this.offer(freshRecord);
+    }
+
+    @Override
     synchronized Cached poll() {
         Cached evictedCachedRecord = this.priorityQueue.poll();
 
@@ -45,8 +81,8 @@ public class EvictionQueue {
     }
 
     private synchronized void waitingQueueToPriorityQueue() {
-        for (int i = 0; i < EvictionQueue.LIMIT && i < EvictionQueue.waitingQueue.size(); i++) {
-            Cached waitingRecord = EvictionQueue.waitingQueue.poll();
+        for (int i = 0; i < EvictionQueue.LIMIT && i < this.waitingQueue.size(); i++) {
+            Cached waitingRecord = this.waitingQueue.poll();
 
             if (Util.isUsable(waitingRecord)) {
                 this.priorityQueue.offer(waitingRecord);
@@ -4,5 +4,6 @@ public enum EvictionStrategy {
     FIFO,
     RANDOM,
     LRU,
-    LFU
+    LFU,
+    ADAPTIVE
 }
@@ -0,0 +1,215 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable snapshot of cached records for data that is loaded once and only read.
+ * <p>
+ * Records sit in flat arrays indexed by a minimal perfect hash of their keys, built by hash and displace: keys are
+ * split in small groups, and each group gets the seed for which {@link Util#hash(String, int)} sends all its keys
+ * to free slots; a single key group stores its slot directly. A read hashes the key twice and compares one key, with
+ * no locking, eviction or invalidation. A cache that has to change is rebuilt and swapped in, see
+ * {@link FrozenCacheHolder}.
+ */
+public final class FrozenCache {
+    private static final int KEYS_PER_GROUP = 4;
+    private static final int GROUP_SEED = 0;
+    private static final int MAX_SEED = 1 << 24;
+
+    private final String name;
+    private final int[] seeds;
+    private final String[] keys;
+    private final Cacheable[] values;
+
+    private FrozenCache(final String name, final Map<String, Cacheable> records) {
+        int keyCount = records.size();
+
+        this.name = name;
+        this.seeds = new int[keyCount / FrozenCache.KEYS_PER_GROUP + 1];
+        this.keys = new String[keyCount];
+        this.values = new Cacheable[keyCount];
+
+        this.place(records.keySet().toArray(new String[0]));
+
+        for (int slot = 0; slot < keyCount; slot++) {
+            this.values[slot] = records.get(this.keys[slot]);
+        }
+    }
+
+    private void place(final String[] recordKeys) {
+        int groupCount = this.seeds.length;
+        int[] groupOf = new int[recordKeys.length];
+        int[] groupStart = new int[groupCount + 1];
+        int[] members = new int[recordKeys.length];
+
+        for (int i = 0; i < recordKeys.length; i++) {
+            groupOf[i] = Math.floorMod(Util.hash(recordKeys[i], FrozenCache.GROUP_SEED), groupCount);
+            groupStart[groupOf[i] + 1]++;
+        }
+
+        for (int group = 0; group < groupCount; group++) {
+            groupStart[group + 1] += groupStart[group];
+        }
+
+        int[] groupFill = Arrays.copyOf(groupStart, groupCount);
+
+        for (int i = 0; i < recordKeys.length; i++) {
+            members[groupFill[groupOf[i]]++] = i;
+        }
+
+        int[] groupsBySize = IntStream.range(0, groupCount).boxed()
+                .sorted((first, second) -> Integer.compare(groupStart[second + 1] - groupStart[second], groupStart[first + 1] - groupStart[first]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        boolean[] occupied = new boolean[recordKeys.length];
+        int[] slots = new int[FrozenCache.KEYS_PER_GROUP * 8];
+        int freeSlot = 0;
+
+        for (int group : groupsBySize) {
+            int from = groupStart[group];
+            int size = groupStart[group + 1] - from;
+
+            if (size == 0) {
+                break;
+            } else if (size == 1) {
+                while (occupied[freeSlot]) {
+                    freeSlot++;
+                }
+
+                occupied[freeSlot] = true;
+                this.keys[freeSlot] = recordKeys[members[from]];
+                this.seeds[group] = -freeSlot - 1;
+
+                continue;
+            }
+
+            if (slots.length < size) {
+                slots = new int[size];
+            }
+
+            int seed = this.findSeed(recordKeys, members, from, size, occupied, slots);
+
+            for (int i = 0; i < size; i++) {
+                occupied[slots[i]] = true;
+                this.keys[slots[i]] = recordKeys[members[from + i]];
+            }
+
+            this.seeds[group] = seed;
+        }
+    }
+
+    private int findSeed(final String[] recordKeys, final int[] members, final int from, final int size, final boolean[] occupied, final int[] slots) {
+        for (int seed = 1; seed < FrozenCache.MAX_SEED; seed++) {
+            if (this.fits(recordKeys, members, from, size, occupied, slots, seed)) {
+                return seed;
+            }
+        }
+
+        throw new IllegalStateException("no perfect hash found for " + size + " keys of " + this.name);
+    }
+
+    private boolean fits(final String[] recordKeys, final int[] members, final int from, final int size, final boolean[] occupied, final int[] slots, final int seed) {
+        for (int i = 0; i < size; i++) {
+            int slot = Math.floorMod(Util.hash(recordKeys[members[from + i]], seed), recordKeys.length);
+
+            if (occupied[slot]) {
+                return false;
+            }
+
+            for (int j = 0; j < i; j++) {
+                if (slots[j] == slot) {
+                    return false;
+                }
+            }
+
+            slots[i] = slot;
+        }
+
+        return true;
+    }
+
+    private int slotOf(final String key) {
+        if (!Util.isUsable(key)) {
+            throw new NullKeyException("key undefined");
+        }
+
+        if (this.keys.length == 0) {
+            return -1;
+        }
+
+        int seed = this.seeds[Math.floorMod(Util.hash(key, FrozenCache.GROUP_SEED), this.seeds.length)];
+        int slot = seed < 0 ? -seed - 1 : Math.floorMod(Util.hash(key, seed), this.keys.length);
+
+        return key.equals(this.keys[slot]) ? slot : -1;
+    }
+
+    public Optional<Cacheable> get(final String key) {
+        return Optional.ofNullable(this.getIfPresent(key));
+    }
+
+    /**
+     * @return the data of the key, null if the key is absent.
+     */
+    public Cacheable getIfPresent(final String key) {
+        int slot = this.slotOf(key);
+
+        return slot < 0 ? null : this.values[slot];
+    }
+
+    public boolean containsKey(final String key) {
+        return this.slotOf(key) >= 0;
+    }
+
+    public Collection<String> keys() {
+        return Collections.unmodifiableList(Arrays.asList(this.keys));
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getSize() {
+        return this.keys.length;
+    }
+
+    @Override
+    public String toString() {
+        return "FrozenCache{name=" + this.name + ", size=" + this.getSize() + "}";
+    }
+
+    public static class Builder {
+        private final String name;
+        private final Map<String, Cacheable> records;
+
+        public Builder(final String name) {
+            this.name = name;
+            this.records = new HashMap<>();
+        }
+
+        public Builder put(final String key, final Cacheable data) {
+            if (!Util.isUsable(key)) {
+                throw new NullKeyException("key undefined");
+            }
+
+            this.records.put(key, data);
+
+            return this;
+        }
+
+        public Builder putAll(final Map<String, ? extends Cacheable> records) {
+            records.forEach(this::put);
+
+            return this;
+        }
+
+        public FrozenCache build() {
+            return new FrozenCache(this.name, this.records);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shared reference to the current version of a {@link FrozenCache}. A rebuilt version is swapped in atomically:
+ * readers see either the old or the new version as a whole, and never wait for the swap.
+ */
+public final class FrozenCacheHolder {
+    private final AtomicReference<FrozenCache> current;
+
+    public FrozenCacheHolder(final FrozenCache frozenCache) {
+        this.current = new AtomicReference<>(this.validate(frozenCache));
+    }
+
+    private FrozenCache validate(final FrozenCache frozenCache) {
+        if (!Util.isUsable(frozenCache)) {
+            throw new IllegalArgumentException("frozenCache undefined");
+        }
+
+        return frozenCache;
+    }
+
+    public FrozenCache current() {
+        return this.current.get();
+    }
+
+    /**
+     * @return the version that was replaced.
+     */
+    public FrozenCache swap(final FrozenCache frozenCache) {
+        return this.current.getAndSet(this.validate(frozenCache));
+    }
+
+    public Optional<Cacheable> get(final String key) {
+        return this.current.get().get(key);
+    }
+
+    public Cacheable getIfPresent(final String key) {
+        return this.current.get().getIfPresent(key);
+    }
+}
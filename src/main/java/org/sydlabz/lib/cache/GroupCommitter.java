@@ -0,0 +1,181 @@
+package org.sydlabz.lib.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combines concurrent write-through writes into batched data source calls.
+ * <p>
+ * The first writer to arrive while no batch is being committed leads the next batch: it waits up to
+ * {@code window} milliseconds for other writers, or until {@code batchSize} writes are pending, then commits them
+ * in arrival order, each run of consecutive saves or updates with one {@link DataSource#saveAll} or
+ * {@link DataSource#updateAll} call, so the last write of a key always wins. Every writer returns only once the batch holding
+ * its write was acknowledged. When a call fails, the batch stops there: the writers of that run and of the runs after
+ * it get the exception or error, those of the runs committed before it return normally. Writes arriving while a batch is
+ * committed wait for the next one, which is how batches form under load even with no window.
+ */
+final class GroupCommitter {
+    private final DataSource dataSource;
+    private final long window;
+    private final int batchSize;
+    private final Object monitor;
+    private final List<PendingWrite> pendingWrites;
+
+    private boolean committing;
+
+    GroupCommitter(final DataSource dataSource, final long window, final int batchSize) {
+        this.dataSource = dataSource;
+        this.window = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, window));
+        this.batchSize = Math.max(1, batchSize);
+        this.monitor = new Object();
+        this.pendingWrites = new ArrayList<>();
+        this.committing = false;
+    }
+
+    void write(final String key, final Cacheable data, final boolean isUpdate) {
+        PendingWrite pendingWrite = new PendingWrite(key, data, isUpdate);
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                List<PendingWrite> batch;
+
+                synchronized (this.monitor) {
+                    if (!pendingWrite.queued) {
+                        pendingWrite.queued = true;
+                        this.pendingWrites.add(pendingWrite);
+
+                        if (this.pendingWrites.size() >= this.batchSize) {
+                            this.monitor.notifyAll();
+                        }
+                    }
+
+                    while (this.committing && !pendingWrite.done) {
+                        interrupted |= this.await(0L);
+                    }
+
+                    if (pendingWrite.done) {
+                        break;
+                    }
+
+                    this.committing = true;
+                    interrupted |= this.awaitBatch();
+                    batch = this.nextBatch();
+                }
+
+                try {
+                    this.commit(batch);
+                } finally {
+                    synchronized (this.monitor) {
+                        for (PendingWrite batchedWrite : batch) {
+                            batchedWrite.done = true;
+                        }
+
+                        this.committing = false;
+                        this.monitor.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (pendingWrite.failure instanceof RuntimeException ex) {
+            throw ex;
+        } else if (pendingWrite.failure instanceof Error error) {
+            throw error;
+        } else if (Util.isUsable(pendingWrite.failure)) {
+            throw new RuntimeException("data source failed while committing the batch", pendingWrite.failure);
+        }
+    }
+
+    /**
+     * Waits, holding the monitor, for the batch to fill up or the window to close.
+     *
+     * @return true if the thread was interrupted meanwhile.
+     */
+    private boolean awaitBatch() {
+        long deadline = System.nanoTime() + this.window;
+        boolean interrupted = false;
+        long remaining;
+
+        while (this.pendingWrites.size() < this.batchSize && (remaining = deadline - System.nanoTime()) > 0) {
+            interrupted |= this.await(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remaining)));
+        }
+
+        return interrupted;
+    }
+
+    private boolean await(final long timeout) {
+        try {
+            this.monitor.wait(timeout);
+
+            return false;
+        } catch (InterruptedException ex) {
+            return true;
+        }
+    }
+
+    private List<PendingWrite> nextBatch() {
+        int count = Math.min(this.batchSize, this.pendingWrites.size());
+        List<PendingWrite> batch = new ArrayList<>(this.pendingWrites.subList(0, count));
+
+        this.pendingWrites.subList(0, count).clear();
+
+        return batch;
+    }
+
+    /**
+     * Commits the batch run by run, and hands whatever a failed call threw, errors included, to the writes it left
+     * uncommitted.
+     */
+    private void commit(final List<PendingWrite> batch) {
+        int start = 0;
+
+        try {
+            while (start < batch.size()) {
+                boolean isUpdate = batch.get(start).isUpdate;
+                Map<String, Cacheable> run = new LinkedHashMap<>();
+                int end = start;
+
+                while (end < batch.size() && batch.get(end).isUpdate == isUpdate) {
+                    run.put(batch.get(end).key, batch.get(end).data);
+                    end++;
+                }
+
+                if (isUpdate) {
+                    this.dataSource.updateAll(run);
+                } else {
+                    this.dataSource.saveAll(run);
+                }
+
+                start = end;
+            }
+        } catch (Throwable throwable) {
+            for (PendingWrite uncommittedWrite : batch.subList(start, batch.size())) {
+                uncommittedWrite.failure = throwable;
+            }
+        }
+    }
+
+    private static final class PendingWrite {
+        private final String key;
+        private final Cacheable data;
+        private final boolean isUpdate;
+
+        private boolean queued;
+        private boolean done;
+        private Throwable failure;
+
+        private PendingWrite(final String key, final Cacheable data, final boolean isUpdate) {
+            this.key = key;
+            this.data = data;
+            this.isUpdate = isUpdate;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.sydlabz.lib.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-saving sketch of the most frequently observed keys.
+ * <p>
+ * At most {@code capacity} keys are counted; an unseen key replaces the key with the smallest count and inherits
+ * that count as its maximum error. Counts are halved once {@link #DECAY_THRESHOLD} observations have been made, so
+ * keys that cool down eventually leave the sketch.
+ * <p>
+ * The sketch is striped by thread: each stripe counts the observations of the threads mapped to it under its own
+ * lock, and judges hotness from that sample of the reads, so readers of different stripes never contend. Stripes
+ * are merged only when the hot keys are listed. A stripe flags nothing before it has made
+ * {@link #MIN_OBSERVED_COUNT} observations, so the first keys read are not taken for hot ones.
+ */
+final class HeavyHitters {
+    private static final long DECAY_THRESHOLD = 1L << 20;
+    private static final long MIN_OBSERVED_COUNT = 256L;
+    private static final int MAX_STRIPES = 64;
+
+    private final int capacity;
+    private final double hotShare;
+    private final Stripe[] stripes;
+
+    HeavyHitters(final int capacity, final double hotShare) {
+        int stripeCount = Integer.highestOneBit(Math.min(HeavyHitters.MAX_STRIPES, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+
+        this.capacity = Math.max(1, capacity);
+        this.hotShare = hotShare;
+        this.stripes = new Stripe[stripeCount];
+
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripe() {
+        long threadId = Thread.currentThread().getId();
+
+        return this.stripes[(int) (threadId ^ (threadId >>> 16)) & (this.stripes.length - 1)];
+    }
+
+    /**
+     * Counts one observation of the key.
+     *
+     * @return the key that was dropped from the stripe of the thread to make room, or null.
+     */
+    String offer(final String key) {
+        return this.stripe().offer(key, this.capacity);
+    }
+
+    boolean isHot(final String key) {
+        return this.stripe().isHot(key, this.hotShare);
+    }
+
+    List<HotKey> getHotKeys() {
+        Map<String, long[]> merged = new HashMap<>();
+
+        for (Stripe stripe : this.stripes) {
+            stripe.mergeInto(merged);
+        }
+
+        List<HotKey> hotKeys = new ArrayList<>(merged.size());
+
+        merged.forEach((key, counter) -> hotKeys.add(new HotKey(key, counter[0], counter[1])));
+        hotKeys.sort(Comparator.comparingLong(HotKey::estimatedCount).reversed());
+
+        return hotKeys.size() > this.capacity ? new ArrayList<>(hotKeys.subList(0, this.capacity)) : hotKeys;
+    }
+
+    private static final class Stripe {
+        private final Map<String, long[]> counters;
+
+        private long observedCount;
+
+        private Stripe() {
+            this.counters = new HashMap<>();
+            this.observedCount = 0L;
+        }
+
+        synchronized String offer(final String key, final int capacity) {
+            String droppedKey = null;
+            long[] counter = this.counters.get(key);
+
+            if (!Util.isUsable(counter)) {
+                if (this.counters.size() < capacity) {
+                    counter = new long[]{0L, 0L};
+                } else {
+                    Map.Entry<String, long[]> smallest = null;
+
+                    for (Map.Entry<String, long[]> entry : this.counters.entrySet()) {
+                        if (!Util.isUsable(smallest) || entry.getValue()[0] < smallest.getValue()[0]) {
+                            smallest = entry;
+                        }
+                    }
+
+                    droppedKey = smallest.getKey();
+                    counter = this.counters.remove(droppedKey);
+                    counter[1] = counter[0];
+                }
+
+                this.counters.put(key, counter);
+            }
+
+            counter[0]++;
+
+            if (++this.observedCount >= HeavyHitters.DECAY_THRESHOLD) {
+                this.decay();
+            }
+
+            return droppedKey;
+        }
+
+        synchronized boolean isHot(final String key, final double hotShare) {
+            long[] counter = this.counters.get(key);
+
+            return this.observedCount >= HeavyHitters.MIN_OBSERVED_COUNT
+                    && Util.isUsable(counter)
+                    && counter[0] - counter[1] >= this.observedCount * hotShare;
+        }
+
+        synchronized void mergeInto(final Map<String, long[]> merged) {
+            this.counters.forEach((key, counter) -> {
+                long[] total = merged.computeIfAbsent(key, mergedKey -> new long[2]);
+
+                total[0] += counter[0];
+                total[1] += counter[1];
+            });
+        }
+
+        private void decay() {
+            for (long[] counter : this.counters.values()) {
+                counter[0] >>>= 1;
+                counter[1] >>>= 1;
+            }
+
+            this.observedCount >>>= 1;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.sydlabz.lib.cache;
+
+public record HotKey(String key, long estimatedCount, long maximumError) {
+}
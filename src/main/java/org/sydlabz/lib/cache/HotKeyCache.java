@@ -0,0 +1,190 @@
+package org.sydlabz.lib.cache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-thread references to the records of the hottest keys, served without looking them up in their bucket.
+ * <p>
+ * A sample of the reads feeds a {@link HeavyHitters} sketch. Keys it flags as hot get a version, and any insert
+ * or removal of such a key moves its version forward, so copies taken under an older version are never served.
+ * Copies also expire after {@code lifeTime} milliseconds. The sampled reads of a copy are forwarded to the bucket,
+ * each counting for {@link #SAMPLE_RATE} accesses, so hot keys keep their place in the eviction order.
+ */
+final class HotKeyCache extends EntryIndex {
+    private static final int SAMPLE_RATE = 8;
+    private static final long UNTRACKED = -1L;
+
+    private final HeavyHitters heavyHitters;
+    private final Map<String, Long> versions;
+    private final AtomicLong versionSequence;
+    private final ThreadLocal<LocalCopies> localCopies;
+    private final Queue<LocalCopies> registeredCopies;
+    private final BucketMap bucketMap;
+    private final boolean localCopiesEnabled;
+    private final int capacity;
+    private final long lifeTime;
+
+    HotKeyCache(final CacheConfiguration cacheConfiguration, final BucketMap bucketMap) {
+        this.capacity = cacheConfiguration.getHotKeyCapacity();
+        this.heavyHitters = new HeavyHitters(this.capacity, cacheConfiguration.getHotKeyShare());
+        this.versions = new ConcurrentHashMap<>();
+        this.versionSequence = new AtomicLong(0L);
+        this.bucketMap = bucketMap;
+        this.localCopiesEnabled = cacheConfiguration.isHotKeyCacheEnabled();
+        this.lifeTime = TimeUnit.MILLISECONDS.toNanos(cacheConfiguration.getHotKeyLifeTime());
+        this.registeredCopies = new ConcurrentLinkedQueue<>();
+        this.localCopies = ThreadLocal.withInitial(this::register);
+    }
+
+    private LocalCopies register() {
+        LocalCopies threadCopies = new LocalCopies(Thread.currentThread(), this.capacity);
+
+        this.registeredCopies.removeIf(registered -> !registered.owner.isAlive());
+        this.registeredCopies.add(threadCopies);
+
+        return threadCopies;
+    }
+
+    long getVersion(final String key) {
+        Long version = this.versions.get(key);
+
+        return Util.isUsable(version) ? version : HotKeyCache.UNTRACKED;
+    }
+
+    /**
+     * @return the local copy of a hot key, or null if the key has to be read from its bucket.
+     */
+    LocalCopy get(final String key) {
+        if (!this.localCopiesEnabled) {
+            return null;
+        }
+
+        long version = this.getVersion(key);
+
+        if (version == HotKeyCache.UNTRACKED) {
+            return null;
+        }
+
+        LocalCopy localCopy = this.localCopies.get().get(key);
+
+        if (!Util.isUsable(localCopy) || localCopy.version() != version || System.nanoTime() - localCopy.copiedTime() > this.lifeTime) {
+            return null;
+        }
+
+        if (ThreadLocalRandom.current().nextInt(HotKeyCache.SAMPLE_RATE) == 0) {
+            this.offer(key);
+            this.bucketMap.access(localCopy.cachedRecord(), HotKeyCache.SAMPLE_RATE);
+        }
+
+        return localCopy;
+    }
+
+    /**
+     * Records a read served by the bucket of the key.
+     *
+     * @param version is the version of the key read before its bucket was accessed.
+     */
+    void onRead(final String key, final Cached cachedRecord, final long version) {
+        boolean hot = ThreadLocalRandom.current().nextInt(HotKeyCache.SAMPLE_RATE) == 0 && this.offer(key);
+
+        if (version != HotKeyCache.UNTRACKED) {
+            if (this.localCopiesEnabled) {
+                this.localCopies.get().put(key, new LocalCopy(cachedRecord, version, System.nanoTime()));
+            }
+        } else if (hot) {
+            this.versions.putIfAbsent(key, this.versionSequence.incrementAndGet());
+        }
+    }
+
+    /**
+     * Counts an observation of the key in the sketch.
+     *
+     * @return true if the key is hot.
+     */
+    private boolean offer(final String key) {
+        String droppedKey = this.heavyHitters.offer(key);
+
+        if (Util.isUsable(droppedKey)) {
+            this.versions.remove(droppedKey);
+        }
+
+        return this.heavyHitters.isHot(key);
+    }
+
+    List<HotKey> getHotKeys() {
+        return this.heavyHitters.getHotKeys();
+    }
+
+    /**
+     * Drops the copies of every thread, so that the records of a cache shut down are not kept alive by its readers.
+     */
+    void clear() {
+        this.versions.clear();
+
+        LocalCopies threadCopies;
+
+        while (Util.isUsable(threadCopies = this.registeredCopies.poll())) {
+            threadCopies.clear();
+        }
+
+        this.localCopies.remove();
+    }
+
+    @Override
+    void onInsert(final Cached cachedRecord) {
+        this.invalidate(cachedRecord.getRecordKey());
+    }
+
+    @Override
+    void onRemove(final Cached cachedRecord) {
+        this.invalidate(cachedRecord.getRecordKey());
+    }
+
+    private void invalidate(final String key) {
+        if (!this.versions.isEmpty()) {
+            this.versions.computeIfPresent(key, (recordKey, version) -> this.versionSequence.incrementAndGet());
+        }
+    }
+
+    record LocalCopy(Cached cachedRecord, long version, long copiedTime) {
+    }
+
+    /**
+     * Copies of one thread, most recently read last. Only {@link #clear()} locks them from another thread, so the
+     * lock is not contended.
+     */
+    private static final class LocalCopies {
+        private final Thread owner;
+        private final LinkedHashMap<String, LocalCopy> copies;
+
+        private LocalCopies(final Thread owner, final int capacity) {
+            this.owner = owner;
+            this.copies = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, LocalCopy> eldest) {
+                    return this.size() > capacity;
+                }
+            };
+        }
+
+        private synchronized LocalCopy get(final String key) {
+            return this.copies.get(key);
+        }
+
+        private synchronized void put(final String key, final LocalCopy localCopy) {
+            this.copies.put(key, localCopy);
+        }
+
+        private synchronized void clear() {
+            this.copies.clear();
+        }
+    }
+}
@@ -1,63 +1,36 @@
 package org.sydlabz.lib.cache;
 
-import java.util.Collection;
-import java.util.TimerTask;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-final class InvalidationTask extends TimerTask {
+final class InvalidationTask extends MaintenanceTask {
     private final BucketMap bucketMap;
 
-    private final ExecutorService executor;
-    private CountDownLatch latch;
+    private Bucket[] buckets;
+    private int bucketIndex;
+    private long currentTime;
 
-    InvalidationTask(final BucketMap bucketMap) {
+    InvalidationTask(final BucketMap bucketMap, final MaintenanceScheduler scheduler, final long timeBudget) {
+        super(scheduler, timeBudget);
         this.bucketMap = bucketMap;
-        this.latch = null;
-        this.executor = Executors.newCachedThreadPool();
+        this.buckets = new Bucket[0];
+        this.bucketIndex = 0;
     }
 
     @Override
-    public void run() {
-        this.invalidate();
+    void begin() {
+        this.currentTime = System.currentTimeMillis();
+        this.buckets = this.bucketMap.isEmpty() ? new Bucket[0] : this.bucketMap.getBuckets().toArray(new Bucket[0]);
+        this.bucketIndex = 0;
     }
 
-    private void invalidate() {
-        if (this.bucketMap.isEmpty()) {
-            return;
-        }
-
-        long currentTime = System.currentTimeMillis();
-        Collection<Bucket> buckets = bucketMap.getBuckets();
-
-        this.latch = new CountDownLatch(this.bucketMap.getBucketCount());
+    @Override
+    boolean step() {
+        if (this.bucketIndex < this.buckets.length) {
+            Bucket bucket = this.buckets[this.bucketIndex++];
 
-        for (Bucket bucket : buckets) {
-            if (bucket.isEmpty()) {
-                this.latch.countDown();
-            } else {
-                this.executor.execute(() -> {
-                    bucket.doInvalidate(currentTime, this.bucketMap);
-                    this.latch.countDown();
-                });
+            if (!bucket.isEmpty()) {
+                bucket.doInvalidate(this.currentTime, this.bucketMap);
             }
         }
 
-        try {
-            latch.await();
-        } catch (InterruptedException e) {
-            throw new RuntimeException("unexpected error while waiting for completion");
-        }
-    }
-
-    void await() {
-        if (Util.isUsable(this.latch)) {
-            try {
-                latch.await();
-            } catch (InterruptedException e) {
-                throw new RuntimeException("unexpected error while waiting for completion");
-            }
-        }
+        return this.bucketIndex < this.buckets.length;
     }
 }
@@ -0,0 +1,28 @@
+package org.sydlabz.lib.cache;
+
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stores cached data of one type as UTF-8 encoded JSON.
+ */
+public final class JsonCodec implements CacheableCodec {
+    private static final Gson GSON = new Gson();
+
+    private final Class<? extends Cacheable> type;
+
+    public JsonCodec(final Class<? extends Cacheable> type) {
+        this.type = type;
+    }
+
+    @Override
+    public byte[] encode(final Cacheable data) {
+        return JsonCodec.GSON.toJson(data, this.type).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Cacheable decode(final byte[] bytes) {
+        return JsonCodec.GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), this.type);
+    }
+}
@@ -0,0 +1,180 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Guards the data source of a cache.
+ * <p>
+ * At most {@code maxConcurrentLoads} loads are in flight at once (unbounded when not positive); a synchronous load
+ * over the limit fails fast instead of queueing behind a slow data source. Background reloads are deduplicated
+ * per key and simply skipped while the limit is reached.
+ * <p>
+ * Prefetches never take those permits, so speculative loads cannot make demand loads fail: they have an allowance
+ * of their own, a {@link #PREFETCH_SHARE}th of {@code maxConcurrentLoads} but at least one load.
+ * <p>
+ * Background reloads run on a bounded reload pool, shared by the caches of a {@link CacheManager}, so a slow data
+ * source cannot hold up the maintenance of the caches; a reload that finds the pool and its queue full is skipped
+ * too. A background load that throws is counted, see {@link #getFailureCount()}, and the key is left as it was.
+ */
+final class LoadCoordinator {
+    private static final AtomicInteger poolSequence = new AtomicInteger(0);
+    private static final int RELOAD_QUEUE_CAPACITY = 1024;
+    private static final long RELOAD_KEEP_ALIVE = 30;
+    private static final int PREFETCH_SHARE = 4;
+
+    private final DataSource dataSource;
+    private final Executor reloadExecutor;
+    private final Semaphore permits;
+    private final Semaphore prefetchPermits;
+    private final Set<String> reloadingKeys;
+    private final AtomicLong failureCount;
+
+    private volatile boolean active;
+
+    LoadCoordinator(final DataSource dataSource, final Executor reloadExecutor, final int maxConcurrentLoads) {
+        this.dataSource = dataSource;
+        this.reloadExecutor = reloadExecutor;
+        this.permits = maxConcurrentLoads > 0 ? new Semaphore(maxConcurrentLoads) : null;
+        this.prefetchPermits = maxConcurrentLoads > 0 ? new Semaphore(Math.max(1, maxConcurrentLoads / LoadCoordinator.PREFETCH_SHARE)) : null;
+        this.reloadingKeys = ConcurrentHashMap.newKeySet();
+        this.failureCount = new AtomicLong(0L);
+        this.active = true;
+    }
+
+    /**
+     * Creates a reload pool of {@code threadCount} threads, idle ones timing out, whose queue is bounded.
+     */
+    static ThreadPoolExecutor createReloadExecutor(final int threadCount) {
+        int poolSize = Math.max(1, threadCount);
+        ThreadPoolExecutor reloadExecutor = new ThreadPoolExecutor(poolSize, poolSize, LoadCoordinator.RELOAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(LoadCoordinator.RELOAD_QUEUE_CAPACITY), threadFactory(poolSequence.incrementAndGet()));
+
+        reloadExecutor.allowCoreThreadTimeOut(true);
+
+        return reloadExecutor;
+    }
+
+    private static ThreadFactory threadFactory(final int poolId) {
+        AtomicInteger threadSequence = new AtomicInteger(0);
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, "cache-reload-" + poolId + "-" + threadSequence.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        };
+    }
+
+    Cacheable load(final String key) {
+        if (!LoadCoordinator.tryAcquire(this.permits)) {
+            throw new DataSourceBusyException("too many concurrent loads from " + this.dataSource.getName());
+        }
+
+        try {
+            return this.dataSource.load(key);
+        } finally {
+            LoadCoordinator.release(this.permits);
+        }
+    }
+
+    /**
+     * Reloads the key in the background unless a reload of it is already running.
+     */
+    void reload(final String key, final Consumer<Cacheable> onLoaded) {
+        this.reload(key, onLoaded, () -> {
+        });
+    }
+
+    /**
+     * Reloads the key in the background unless a reload of it is already running. The completion runs once the
+     * background work is over, whether the key could be loaded or not.
+     *
+     * @return false if no background work was started, in which case the completion does not run.
+     */
+    boolean reload(final String key, final Consumer<Cacheable> onLoaded, final Runnable onCompletion) {
+        return this.submit(key, this.permits, onLoaded, onCompletion);
+    }
+
+    /**
+     * Loads the key in the background like {@link #reload(String, Consumer, Runnable)}, within the allowance of
+     * prefetches.
+     */
+    boolean prefetch(final String key, final Consumer<Cacheable> onLoaded, final Runnable onCompletion) {
+        return this.submit(key, this.prefetchPermits, onLoaded, onCompletion);
+    }
+
+    private boolean submit(final String key, final Semaphore loadPermits, final Consumer<Cacheable> onLoaded, final Runnable onCompletion) {
+        if (!this.active || !this.reloadingKeys.add(key)) {
+            return false;
+        }
+
+        boolean scheduled = this.tryExecute(() -> {
+            try {
+                if (LoadCoordinator.tryAcquire(loadPermits)) {
+                    try {
+                        onLoaded.accept(this.dataSource.load(key));
+                    } catch (RuntimeException ex) {
+                        this.failureCount.incrementAndGet();
+                    } finally {
+                        LoadCoordinator.release(loadPermits);
+                    }
+                }
+            } finally {
+                this.reloadingKeys.remove(key);
+                onCompletion.run();
+            }
+        });
+
+        if (!scheduled) {
+            this.reloadingKeys.remove(key);
+        }
+
+        return scheduled;
+    }
+
+    /**
+     * @return the number of background loads that failed.
+     */
+    long getFailureCount() {
+        return this.failureCount.get();
+    }
+
+    private boolean tryExecute(final Runnable runnable) {
+        try {
+            this.reloadExecutor.execute(runnable);
+
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Stops accepting reloads; the reloads already queued still complete. The reload pool is left running.
+     */
+    void shutdown() {
+        this.active = false;
+    }
+
+    private static boolean tryAcquire(final Semaphore loadPermits) {
+        return !Util.isUsable(loadPermits) || loadPermits.tryAcquire();
+    }
+
+    private static void release(final Semaphore loadPermits) {
+        if (Util.isUsable(loadPermits)) {
+            loadPermits.release();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.sydlabz.lib.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * One append-only file of a {@link LogStructuredDataSource}.
+ * <p>
+ * A record is laid out as {@code crc, keyLength, valueLength, key, value}, the CRC covering everything after it.
+ * The active segment is read with positional reads; once sealed, a segment never changes again and is read through
+ * a read-only memory mapping.
+ */
+final class LogSegment {
+    static final int HEADER_SIZE = 12;
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final AtomicLong liveBytes;
+
+    private volatile long size;
+    private volatile MappedByteBuffer mappedBuffer;
+
+    LogSegment(final long id, final Path path) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.liveBytes = new AtomicLong(0L);
+        this.size = this.channel.size();
+        this.mappedBuffer = null;
+    }
+
+    static ByteBuffer encode(final byte[] key, final byte[] value) {
+        ByteBuffer record = ByteBuffer.allocate(LogSegment.HEADER_SIZE + key.length + value.length);
+
+        record.position(4);
+        record.putInt(key.length).putInt(value.length).put(key).put(value);
+
+        CRC32 crc = new CRC32();
+
+        crc.update(record.array(), 4, record.capacity() - 4);
+        record.putInt(0, (int) crc.getValue());
+
+        return record.flip();
+    }
+
+    long getId() {
+        return this.id;
+    }
+
+    long getSize() {
+        return this.size;
+    }
+
+    AtomicLong getLiveBytes() {
+        return this.liveBytes;
+    }
+
+    boolean isSealed() {
+        return Util.isUsable(this.mappedBuffer);
+    }
+
+    /**
+     * Appends an encoded record; callers serialize appends.
+     *
+     * @return the offset of the record.
+     */
+    long append(final ByteBuffer record) throws IOException {
+        long offset = this.size;
+        long position = offset;
+
+        while (record.hasRemaining()) {
+            position += this.channel.write(record, position);
+        }
+
+        this.size = position;
+
+        return offset;
+    }
+
+    byte[] read(final long offset, final int length) throws IOException {
+        byte[] bytes = new byte[length];
+        MappedByteBuffer currentBuffer = this.mappedBuffer;
+
+        if (Util.isUsable(currentBuffer)) {
+            currentBuffer.get((int) offset, bytes, 0, length);
+        } else {
+            ByteBuffer target = ByteBuffer.wrap(bytes);
+
+            while (target.hasRemaining()) {
+                if (this.channel.read(target, offset + target.position()) < 0) {
+                    throw new IOException("unexpected end of segment " + this.path);
+                }
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Scans the records of the segment from the start, stopping at the first incomplete or corrupted record.
+     *
+     * @return the offset following the last valid record.
+     */
+    long scan(final RecordVisitor visitor) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LogSegment.HEADER_SIZE);
+        long offset = 0L;
+
+        while (offset + LogSegment.HEADER_SIZE <= this.size) {
+            header.clear();
+            this.channel.read(header, offset);
+            header.flip();
+
+            int crc = header.getInt();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+
+            if (keyLength < 0 || valueLength < 0 || offset + LogSegment.HEADER_SIZE + keyLength + valueLength > this.size) {
+                break;
+            }
+
+            byte[] body = this.read(offset + 4, LogSegment.HEADER_SIZE - 4 + keyLength + valueLength);
+            CRC32 checksum = new CRC32();
+
+            checksum.update(body);
+
+            if ((int) checksum.getValue() != crc) {
+                break;
+            }
+
+            visitor.visit(offset, keyLength, valueLength, body);
+            offset += LogSegment.HEADER_SIZE + keyLength + valueLength;
+        }
+
+        return offset;
+    }
+
+    void truncate(final long validSize) throws IOException {
+        this.channel.truncate(validSize);
+        this.size = validSize;
+    }
+
+    void seal() throws IOException {
+        this.channel.force(false);
+        this.mappedBuffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+    }
+
+    void force() throws IOException {
+        this.channel.force(false);
+    }
+
+    void close() throws IOException {
+        this.channel.close();
+    }
+
+    void delete() throws IOException {
+        this.channel.close();
+        Files.deleteIfExists(this.path);
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        /**
+         * @param body is the record without its CRC: lengths, key and value.
+         */
+        void visit(long offset, int keyLength, int valueLength, byte[] body) throws IOException;
+    }
+}
@@ -0,0 +1,443 @@
+package org.sydlabz.lib.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * File-backed data source storing its data in append-only log segments.
+ * <p>
+ * Every save appends a record to the active segment and points the in-memory index of the key at it; once the
+ * active segment reaches {@code segmentSize} it is sealed and memory-mapped for reads, and a new one is started.
+ * Writes reach the disk in batches, every {@code syncInterval} milliseconds or on {@link #sync()}. Sealed segments
+ * mostly made of overwritten records are compacted in the background: their live records are appended again and
+ * the segment file is deleted.
+ * <p>
+ * On start the index is rebuilt by scanning the segments of the directory; an incomplete record at the end of the
+ * last segment, e.g. after a crash, is discarded. An invalid record in any other segment is corruption of committed
+ * data and fails the start with an {@link UncheckedIOException}.
+ */
+public final class LogStructuredDataSource implements DataSource, Closeable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final AtomicInteger sourceSequence = new AtomicInteger(0);
+
+    private final String name;
+    private final Path directory;
+    private final CacheableCodec codec;
+    private final long segmentSize;
+    private final double compactionThreshold;
+
+    private final Map<String, Location> index;
+    private final List<LogSegment> sealedSegments;
+    private final Object writeLock;
+    private final AtomicBoolean dirty;
+    private final ScheduledThreadPoolExecutor executor;
+
+    private volatile LogSegment activeSegment;
+    private volatile boolean open;
+
+    private LogStructuredDataSource(final Builder builder) {
+        this.name = builder.name;
+        this.directory = builder.directory;
+        this.codec = builder.codec;
+        this.segmentSize = builder.segmentSize;
+        this.compactionThreshold = builder.compactionThreshold;
+        this.index = new ConcurrentHashMap<>();
+        this.sealedSegments = new CopyOnWriteArrayList<>();
+        this.writeLock = new Object();
+        this.dirty = new AtomicBoolean(false);
+
+        try {
+            Files.createDirectories(this.directory);
+            this.recover();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        int sourceId = LogStructuredDataSource.sourceSequence.incrementAndGet();
+
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "log-data-source-" + sourceId);
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::syncQuietly, builder.syncInterval, builder.syncInterval, TimeUnit.MILLISECONDS);
+        this.executor.scheduleWithFixedDelay(this::compactQuietly, builder.compactionInterval, builder.compactionInterval, TimeUnit.MILLISECONDS);
+        this.open = true;
+    }
+
+    private void recover() throws IOException {
+        List<Path> segmentPaths = new ArrayList<>();
+
+        try (Stream<Path> paths = Files.list(this.directory)) {
+            paths.filter(path -> this.segmentId(path) >= 0).sorted((path1, path2) -> Long.compare(this.segmentId(path1), this.segmentId(path2))).forEach(segmentPaths::add);
+        }
+
+        LogSegment lastSegment = null;
+
+        for (int i = 0; i < segmentPaths.size(); i++) {
+            Path segmentPath = segmentPaths.get(i);
+            LogSegment segment = new LogSegment(this.segmentId(segmentPath), segmentPath);
+            long validSize = segment.scan((offset, keyLength, valueLength, body) -> {
+                String key = new String(body, LogSegment.HEADER_SIZE - 4, keyLength, StandardCharsets.UTF_8);
+
+                this.index(key, new Location(segment, offset, keyLength, valueLength));
+            });
+
+            if (validSize < segment.getSize()) {
+                if (i < segmentPaths.size() - 1) {
+                    segment.close();
+                    this.closeSegments(lastSegment);
+
+                    throw new IOException("corrupted record at offset " + validSize + " of sealed segment " + segmentPath);
+                }
+
+                segment.truncate(validSize);
+            }
+
+            if (Util.isUsable(lastSegment)) {
+                lastSegment.seal();
+                this.sealedSegments.add(lastSegment);
+            }
+
+            lastSegment = segment;
+        }
+
+        this.activeSegment = Util.isUsable(lastSegment) ? lastSegment : this.createSegment(0L);
+    }
+
+    /**
+     * Closes the segments recovered so far, when the recovery fails.
+     */
+    private void closeSegments(final LogSegment lastSegment) throws IOException {
+        for (LogSegment segment : this.sealedSegments) {
+            segment.close();
+        }
+
+        if (Util.isUsable(lastSegment)) {
+            lastSegment.close();
+        }
+    }
+
+    private long segmentId(final Path path) {
+        String fileName = path.getFileName().toString();
+
+        if (!fileName.startsWith(LogStructuredDataSource.SEGMENT_PREFIX) || !fileName.endsWith(LogStructuredDataSource.SEGMENT_SUFFIX)) {
+            return -1L;
+        }
+
+        try {
+            return Long.parseLong(fileName.substring(LogStructuredDataSource.SEGMENT_PREFIX.length(), fileName.length() - LogStructuredDataSource.SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1L;
+        }
+    }
+
+    private LogSegment createSegment(final long id) throws IOException {
+        return new LogSegment(id, this.directory.resolve(String.format("%s%020d%s", LogStructuredDataSource.SEGMENT_PREFIX, id, LogStructuredDataSource.SEGMENT_SUFFIX)));
+    }
+
+    /**
+     * Points the key at its latest record and accounts the record it replaces as garbage.
+     */
+    private void index(final String key, final Location location) {
+        location.segment().getLiveBytes().addAndGet(location.length());
+
+        Location previousLocation = this.index.put(key, location);
+
+        if (Util.isUsable(previousLocation)) {
+            previousLocation.segment().getLiveBytes().addAndGet(-previousLocation.length());
+        }
+    }
+
+    @Override
+    public Cacheable load(final String key) {
+        this.validateState();
+
+        while (true) {
+            Location location = this.index.get(key);
+
+            if (!Util.isUsable(location)) {
+                return null;
+            }
+
+            try {
+                return this.codec.decode(location.segment().read(location.valueOffset(), location.valueLength()));
+            } catch (IOException ex) {
+                if (location == this.index.get(key)) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Stream<String> keys() {
+        return this.index.keySet().stream();
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public void save(final String key, final Cacheable data) {
+        this.validateState();
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = LogSegment.encode(keyBytes, this.codec.encode(data));
+
+        synchronized (this.writeLock) {
+            this.append(key, keyBytes.length, record);
+        }
+    }
+
+    @Override
+    public void update(final String key, final Cacheable data) {
+        this.save(key, data);
+    }
+
+    /**
+     * Encodes the records first, then appends them all while holding the write lock once.
+     */
+    @Override
+    public void saveAll(final Map<String, Cacheable> data) {
+        this.validateState();
+
+        List<String> keys = new ArrayList<>(data.size());
+        List<ByteBuffer> records = new ArrayList<>(data.size());
+        int[] keyLengths = new int[data.size()];
+
+        for (Map.Entry<String, Cacheable> entry : data.entrySet()) {
+            byte[] keyBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+
+            keyLengths[keys.size()] = keyBytes.length;
+            keys.add(entry.getKey());
+            records.add(LogSegment.encode(keyBytes, this.codec.encode(entry.getValue())));
+        }
+
+        synchronized (this.writeLock) {
+            for (int i = 0; i < keys.size(); i++) {
+                this.append(keys.get(i), keyLengths[i], records.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void updateAll(final Map<String, Cacheable> data) {
+        this.saveAll(data);
+    }
+
+    private void append(final String key, final int keyLength, final ByteBuffer record) {
+        try {
+            if (this.activeSegment.getSize() > 0 && this.activeSegment.getSize() + record.remaining() > this.segmentSize) {
+                this.roll();
+            }
+
+            int valueLength = record.remaining() - LogSegment.HEADER_SIZE - keyLength;
+            long offset = this.activeSegment.append(record);
+
+            this.index(key, new Location(this.activeSegment, offset, keyLength, valueLength));
+            this.dirty.set(true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void roll() throws IOException {
+        LogSegment sealedSegment = this.activeSegment;
+
+        sealedSegment.seal();
+        this.sealedSegments.add(sealedSegment);
+        this.activeSegment = this.createSegment(sealedSegment.getId() + 1);
+    }
+
+    /**
+     * Forces the pending writes to the disk.
+     */
+    @Override
+    public void sync() {
+        if (this.dirty.getAndSet(false)) {
+            try {
+                this.activeSegment.force();
+            } catch (IOException ex) {
+                this.dirty.set(true);
+
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            this.sync();
+        } catch (RuntimeException ignored) {
+            // retried on the next run
+        }
+    }
+
+    /**
+     * Compacts the sealed segments whose share of overwritten records reached the compaction threshold.
+     */
+    void compact() throws IOException {
+        for (LogSegment segment : this.sealedSegments) {
+            if (segment.getLiveBytes().get() <= segment.getSize() * (1.0 - this.compactionThreshold)) {
+                this.compact(segment);
+            }
+        }
+    }
+
+    private void compact(final LogSegment segment) throws IOException {
+        segment.scan((offset, keyLength, valueLength, body) -> {
+            String key = new String(body, LogSegment.HEADER_SIZE - 4, keyLength, StandardCharsets.UTF_8);
+
+            synchronized (this.writeLock) {
+                Location location = this.index.get(key);
+
+                if (Util.isUsable(location) && location.segment() == segment && location.offset() == offset) {
+                    byte[] value = new byte[valueLength];
+
+                    System.arraycopy(body, LogSegment.HEADER_SIZE - 4 + keyLength, value, 0, valueLength);
+                    this.append(key, keyLength, LogSegment.encode(key.getBytes(StandardCharsets.UTF_8), value));
+                }
+            }
+        });
+
+        this.sync();
+        this.sealedSegments.remove(segment);
+        segment.delete();
+    }
+
+    private void compactQuietly() {
+        try {
+            this.compact();
+        } catch (IOException | RuntimeException ignored) {
+            // retried on the next run
+        }
+    }
+
+    private void validateState() {
+        if (!this.open) {
+            throw new IllegalStateException(this.name + " is closed");
+        }
+    }
+
+    /**
+     * Stops the background work, forces the pending writes to the disk and closes the segments.
+     */
+    @Override
+    public void close() {
+        this.open = false;
+        this.executor.shutdown();
+
+        try {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+            synchronized (this.writeLock) {
+                this.activeSegment.force();
+                this.activeSegment.close();
+
+                for (LogSegment segment : this.sealedSegments) {
+                    segment.close();
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("unexpected error while waiting for termination");
+        }
+    }
+
+    private record Location(LogSegment segment, long offset, int keyLength, int valueLength) {
+        private long valueOffset() {
+            return this.offset + LogSegment.HEADER_SIZE + this.keyLength;
+        }
+
+        private int length() {
+            return LogSegment.HEADER_SIZE + this.keyLength + this.valueLength;
+        }
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private final CacheableCodec codec;
+
+        private String name;
+        private long segmentSize;
+        private long syncInterval;
+        private long compactionInterval;
+        private double compactionThreshold;
+
+        public Builder(final Path directory, final CacheableCodec codec) {
+            this.directory = directory;
+            this.codec = codec;
+            this.name = directory.getFileName().toString();
+            this.segmentSize = 64L << 20;
+            this.syncInterval = 100;
+            this.compactionInterval = 10_000;
+            this.compactionThreshold = 0.5;
+        }
+
+        public Builder name(final String name) {
+            this.name = name;
+
+            return this;
+        }
+
+        /**
+         * Size in bytes after which the active segment is sealed; at most 2 GB since sealed segments are mapped.
+         */
+        public Builder segmentSize(final long segmentSize) {
+            this.segmentSize = segmentSize;
+
+            return this;
+        }
+
+        public Builder syncInterval(final long syncInterval) {
+            this.syncInterval = syncInterval;
+
+            return this;
+        }
+
+        public Builder compactionInterval(final long compactionInterval) {
+            this.compactionInterval = compactionInterval;
+
+            return this;
+        }
+
+        /**
+         * Share of overwritten bytes from which a sealed segment is compacted.
+         */
+        public Builder compactionThreshold(final double compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+
+            return this;
+        }
+
+        public LogStructuredDataSource build() {
+            if (this.segmentSize <= 0 || this.segmentSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("segmentSize must be positive and at most 2 GB");
+            }
+
+            return new LogStructuredDataSource(this);
+        }
+    }
+}
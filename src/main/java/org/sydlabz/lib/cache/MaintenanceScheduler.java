@@ -0,0 +1,71 @@
+package org.sydlabz.lib.cache;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool running the periodic maintenance of one or more caches.
+ * <p>
+ * Each {@link MaintenanceTask} runs for at most its time budget and then re-queues its continuation behind the
+ * work of every other cache sharing the pool, so a large cache cannot starve the others.
+ */
+final class MaintenanceScheduler implements Executor {
+    private static final AtomicInteger poolSequence = new AtomicInteger(0);
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    MaintenanceScheduler(final int threadCount) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("threadCount must be positive");
+        }
+
+        this.executor = new ScheduledThreadPoolExecutor(threadCount, threadFactory(poolSequence.incrementAndGet()));
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    private static ThreadFactory threadFactory(final int poolId) {
+        AtomicInteger threadSequence = new AtomicInteger(0);
+
+        return runnable -> new Thread(runnable, "cache-maintenance-" + poolId + "-" + threadSequence.incrementAndGet());
+    }
+
+    void schedule(final MaintenanceTask task, final long initialDelay, final long period) {
+        task.attach(this.executor.scheduleWithFixedDelay(task, initialDelay, period, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void execute(final Runnable runnable) {
+        this.executor.execute(runnable);
+    }
+
+    boolean tryExecute(final Runnable runnable) {
+        try {
+            this.executor.execute(runnable);
+
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    boolean isShutdown() {
+        return this.executor.isShutdown();
+    }
+
+    void shutdown() {
+        this.executor.shutdown();
+    }
+
+    void awaitTermination() {
+        try {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("unexpected error while waiting for termination");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.sydlabz.lib.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Periodic cache maintenance split into small steps.
+ * <p>
+ * A pass is started by the scheduler, then {@link #step()} is called until it reports completion or the time
+ * budget of the slice is spent, in which case the rest of the pass is queued again on the scheduler. The latch of
+ * a pass is published by the same compare-and-set that starts it, so {@link #await()} never sees a stale one.
+ * <p>
+ * A pass that throws ends there and is counted, see {@link #getFailureCount()}; the schedule goes on and the next
+ * pass starts over.
+ */
+abstract class MaintenanceTask implements Runnable {
+    private final MaintenanceScheduler scheduler;
+    private final long timeBudget;
+    private final AtomicReference<CountDownLatch> runningPass;
+    private final AtomicLong failureCount;
+
+    private volatile ScheduledFuture<?> future;
+    private volatile boolean cancelled;
+
+    MaintenanceTask(final MaintenanceScheduler scheduler, final long timeBudget) {
+        this.scheduler = scheduler;
+        this.timeBudget = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, timeBudget));
+        this.runningPass = new AtomicReference<>(null);
+        this.failureCount = new AtomicLong(0L);
+        this.cancelled = false;
+    }
+
+    void attach(final ScheduledFuture<?> future) {
+        this.future = future;
+    }
+
+    @Override
+    public final void run() {
+        if (this.cancelled || !this.runningPass.compareAndSet(null, new CountDownLatch(1))) {
+            return;
+        }
+
+        try {
+            this.begin();
+        } catch (RuntimeException ex) {
+            this.failureCount.incrementAndGet();
+            this.complete();
+
+            return;
+        }
+
+        this.resume();
+    }
+
+    private void resume() {
+        long deadline = System.nanoTime() + this.timeBudget;
+        boolean pending = false;
+
+        try {
+            do {
+                pending = !this.cancelled && this.step();
+            } while (pending && System.nanoTime() < deadline);
+        } catch (RuntimeException ex) {
+            pending = false;
+            this.failureCount.incrementAndGet();
+        } finally {
+            if (!pending || !this.scheduler.tryExecute(this::resume)) {
+                this.complete();
+            }
+        }
+    }
+
+    private void complete() {
+        CountDownLatch latch = this.runningPass.getAndSet(null);
+
+        latch.countDown();
+    }
+
+    /**
+     * Prepares a new maintenance pass.
+     */
+    abstract void begin();
+
+    /**
+     * Performs one unit of work of the current pass.
+     *
+     * @return true if the pass has more work to do.
+     */
+    abstract boolean step();
+
+    /**
+     * @return the number of passes ended by an exception.
+     */
+    long getFailureCount() {
+        return this.failureCount.get();
+    }
+
+    void await() {
+        CountDownLatch currentLatch = this.runningPass.get();
+
+        if (Util.isUsable(currentLatch)) {
+            try {
+                currentLatch.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException("unexpected error while waiting for completion");
+            }
+        }
+    }
+
+    void cancel() {
+        this.cancelled = true;
+
+        if (Util.isUsable(this.future)) {
+            this.future.cancel(false);
+        }
+    }
+}
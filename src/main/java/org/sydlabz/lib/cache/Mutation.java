@@ -0,0 +1,11 @@
+package org.sydlabz.lib.cache;
+
+record Mutation(Cached cachedRecord, boolean wasPresent, boolean changed) {
+    Cacheable data() {
+        return Util.isUsable(this.cachedRecord) ? this.cachedRecord.getCachedData() : null;
+    }
+
+    boolean isPresent() {
+        return Util.isUsable(this.cachedRecord);
+    }
+}
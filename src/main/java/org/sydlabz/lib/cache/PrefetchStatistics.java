@@ -0,0 +1,17 @@
+package org.sydlabz.lib.cache;
+
+/**
+ * Counters of the prefetcher of a cache, decayed over time so that they reflect its recent behaviour.
+ *
+ * @param issued prefetch loads started.
+ * @param loaded prefetched records inserted into the cache.
+ * @param useful prefetched records read before leaving the cache.
+ * @param wasted prefetched records that left the cache, or were replaced, without being read.
+ */
+public record PrefetchStatistics(long issued, long loaded, long useful, long wasted) {
+    public double accuracy() {
+        long resolved = this.useful + this.wasted;
+
+        return resolved == 0 ? 1.0 : (double) this.useful / resolved;
+    }
+}
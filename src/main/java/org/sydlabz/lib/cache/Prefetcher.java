@@ -0,0 +1,251 @@
+package org.sydlabz.lib.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Learns which keys are read after which from the read stream of each thread, and loads the likely successors of
+ * a key in the background before they are asked for.
+ * <p>
+ * The association table keeps at most {@code tableSize} keys with {@code successorCount} successors each; counts
+ * are halved regularly so that stale associations fade out, and once the table is full the quarter of its keys
+ * observed least recently is dropped. A successor is prefetched when it followed the key at
+ * least {@code confidence} of the time and is not cached. At most {@code budget} prefetched records may be in flight
+ * or waiting to be read, and prefetching mostly pauses while the recent accuracy is below {@code minAccuracy}.
+ */
+final class Prefetcher extends EntryIndex {
+    private static final int DECAY_THRESHOLD = 64;
+    private static final long STATISTICS_DECAY_THRESHOLD = 1024;
+    private static final long MIN_RESOLVED = 32;
+    private static final int PROBE_RATE = 16;
+    private static final int TRIM_SHARE = 4;
+
+    private final Map<String, Successors> associations;
+    private final ThreadLocal<String> previousKey;
+    private final Set<String> prefetchedKeys;
+    private final AtomicBoolean trimming;
+    private final AtomicInteger inFlight;
+    private final int tableSize;
+    private final int successorCount;
+    private final double confidence;
+    private final int budget;
+    private final double minAccuracy;
+
+    private final AtomicLong issued;
+    private final AtomicLong loaded;
+    private final AtomicLong useful;
+    private final AtomicLong wasted;
+
+    Prefetcher(final CacheConfiguration cacheConfiguration) {
+        this.associations = new ConcurrentHashMap<>();
+        this.previousKey = new ThreadLocal<>();
+        this.prefetchedKeys = ConcurrentHashMap.newKeySet();
+        this.trimming = new AtomicBoolean(false);
+        this.inFlight = new AtomicInteger(0);
+        this.tableSize = Math.max(1, cacheConfiguration.getPrefetchTableSize());
+        this.successorCount = Math.max(1, cacheConfiguration.getPrefetchSuccessors());
+        this.confidence = cacheConfiguration.getPrefetchConfidence();
+        this.budget = cacheConfiguration.getPrefetchBudget();
+        this.minAccuracy = cacheConfiguration.getPrefetchMinAccuracy();
+        this.issued = new AtomicLong(0L);
+        this.loaded = new AtomicLong(0L);
+        this.useful = new AtomicLong(0L);
+        this.wasted = new AtomicLong(0L);
+    }
+
+    /**
+     * Records a read of the key by the current thread.
+     *
+     * @return the keys worth prefetching now.
+     */
+    List<String> onRead(final String key) {
+        String previous = this.previousKey.get();
+
+        this.previousKey.set(key);
+
+        if (this.prefetchedKeys.remove(key)) {
+            this.useful.incrementAndGet();
+            this.decayStatistics();
+        }
+
+        if (Util.isUsable(previous) && !previous.equals(key)) {
+            this.learn(previous, key);
+        }
+
+        Successors successors = this.associations.get(key);
+
+        return Util.isUsable(successors) && this.isAllowed() ? successors.predict(this.confidence) : List.of();
+    }
+
+    private void learn(final String key, final String successor) {
+        Successors successors = this.associations.get(key);
+
+        if (!Util.isUsable(successors)) {
+            if (this.associations.size() >= this.tableSize) {
+                this.trim();
+            }
+
+            successors = this.associations.computeIfAbsent(key, value -> new Successors(this.successorCount));
+        }
+
+        successors.observe(successor);
+    }
+
+    /**
+     * Drops the keys observed least recently, one thread at a time; the others keep learning meanwhile.
+     */
+    private void trim() {
+        if (!this.trimming.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long[] observedTimes = this.associations.values().stream().mapToLong(Successors::getLastObserved).sorted().toArray();
+
+            if (observedTimes.length >= this.tableSize) {
+                long threshold = observedTimes[observedTimes.length / Prefetcher.TRIM_SHARE];
+
+                this.associations.values().removeIf(successors -> successors.getLastObserved() <= threshold);
+            }
+        } finally {
+            this.trimming.set(false);
+        }
+    }
+
+    private boolean isAllowed() {
+        long resolved = this.useful.get() + this.wasted.get();
+
+        if (resolved < Prefetcher.MIN_RESOLVED || this.useful.get() >= this.minAccuracy * resolved) {
+            return true;
+        }
+
+        return ThreadLocalRandom.current().nextInt(Prefetcher.PROBE_RATE) == 0;
+    }
+
+    /**
+     * Reserves room in the budget for one prefetch; {@link #release()} must follow once it completes.
+     */
+    boolean tryReserve() {
+        while (true) {
+            int current = this.inFlight.get();
+
+            if (current + this.prefetchedKeys.size() >= this.budget) {
+                return false;
+            }
+
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                this.issued.incrementAndGet();
+
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        this.inFlight.decrementAndGet();
+    }
+
+    void onPrefetched(final String key) {
+        this.loaded.incrementAndGet();
+        this.prefetchedKeys.add(key);
+    }
+
+    PrefetchStatistics getStatistics() {
+        return new PrefetchStatistics(this.issued.get(), this.loaded.get(), this.useful.get(), this.wasted.get());
+    }
+
+    @Override
+    void onInsert(final Cached cachedRecord) {
+    }
+
+    @Override
+    void onRemove(final Cached cachedRecord) {
+        if (!this.prefetchedKeys.isEmpty() && this.prefetchedKeys.remove(cachedRecord.getRecordKey())) {
+            this.wasted.incrementAndGet();
+            this.decayStatistics();
+        }
+    }
+
+    private void decayStatistics() {
+        if (this.useful.get() + this.wasted.get() > Prefetcher.STATISTICS_DECAY_THRESHOLD) {
+            this.issued.updateAndGet(value -> value / 2);
+            this.loaded.updateAndGet(value -> value / 2);
+            this.useful.updateAndGet(value -> value / 2);
+            this.wasted.updateAndGet(value -> value / 2);
+        }
+    }
+
+    /**
+     * Most frequent successors of one key, kept space-saving style: an unknown successor replaces the rarest one.
+     */
+    private static final class Successors {
+        private final String[] keys;
+        private final int[] counts;
+
+        private int total;
+        private volatile long lastObserved;
+
+        private Successors(final int capacity) {
+            this.keys = new String[capacity];
+            this.counts = new int[capacity];
+            this.total = 0;
+            this.lastObserved = System.nanoTime();
+        }
+
+        private long getLastObserved() {
+            return this.lastObserved;
+        }
+
+        private synchronized void observe(final String successor) {
+            int rarest = 0;
+
+            this.lastObserved = System.nanoTime();
+
+            for (int i = 0; i < this.keys.length; i++) {
+                if (successor.equals(this.keys[i])) {
+                    rarest = i;
+
+                    break;
+                } else if (this.counts[i] < this.counts[rarest]) {
+                    rarest = i;
+                }
+            }
+
+            if (!successor.equals(this.keys[rarest])) {
+                this.keys[rarest] = successor;
+                this.counts[rarest] = 0;
+            }
+
+            this.counts[rarest]++;
+            this.total++;
+
+            if (this.total > Prefetcher.DECAY_THRESHOLD) {
+                this.total = 0;
+
+                for (int i = 0; i < this.counts.length; i++) {
+                    this.counts[i] /= 2;
+                    this.total += this.counts[i];
+                }
+            }
+        }
+
+        private synchronized List<String> predict(final double confidence) {
+            List<String> predictions = new ArrayList<>(0);
+
+            for (int i = 0; i < this.keys.length; i++) {
+                if (Util.isUsable(this.keys[i]) && this.counts[i] > 1 && this.counts[i] >= confidence * this.total) {
+                    predictions.add(this.keys[i]);
+                }
+            }
+
+            return predictions;
+        }
+    }
+}
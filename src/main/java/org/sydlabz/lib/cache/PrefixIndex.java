@@ -0,0 +1,30 @@
+package org.sydlabz.lib.cache;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Sorted set of the cached keys, so the keys sharing a prefix form one contiguous range.
+ */
+final class PrefixIndex extends EntryIndex {
+    private final NavigableSet<String> recordKeys;
+
+    PrefixIndex() {
+        this.recordKeys = new ConcurrentSkipListSet<>();
+    }
+
+    @Override
+    void onInsert(final Cached cachedRecord) {
+        this.recordKeys.add(cachedRecord.getRecordKey());
+    }
+
+    @Override
+    void onRemove(final Cached cachedRecord) {
+        this.recordKeys.remove(cachedRecord.getRecordKey());
+    }
+
+    Stream<String> getKeys(final String prefix) {
+        return this.recordKeys.tailSet(prefix, true).stream().takeWhile(recordKey -> recordKey.startsWith(prefix));
+    }
+}
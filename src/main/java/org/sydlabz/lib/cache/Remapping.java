@@ -0,0 +1,17 @@
+package org.sydlabz.lib.cache;
+
+interface Remapping {
+    /**
+     * Keeps the current record as it is.
+     */
+    Cacheable UNCHANGED = new Cacheable() {
+    };
+
+    /**
+     * Computes the new data of a record while its bucket is locked.
+     *
+     * @param currentRecord is the cached record, or null if the key is absent.
+     * @return the new data, null to remove the record or {@link #UNCHANGED} to leave it untouched.
+     */
+    Cacheable remap(Cached currentRecord);
+}
@@ -0,0 +1,8 @@
+package org.sydlabz.lib.cache;
+
+public enum RemovalCause {
+    EXPLICIT,
+    REPLACED,
+    EXPIRED,
+    EVICTED
+}
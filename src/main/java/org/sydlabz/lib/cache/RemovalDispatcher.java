@@ -0,0 +1,183 @@
+package org.sydlabz.lib.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers removal notifications to the listeners in batches, on the configured executor or else on the removal
+ * pool of the cache, never on the thread that removed the records, which holds the lock of their bucket, nor on the
+ * maintenance pool.
+ * <p>
+ * Each run delivers one batch and queues the next run behind the work of the other caches sharing the pool. A
+ * dispatch the executor rejects is retried every {@link #RETRY_DELAY} milliseconds until the dispatcher is shut
+ * down. At most {@link #MAX_PENDING_NOTIFICATIONS} notifications wait for delivery; later ones are dropped and
+ * counted.
+ */
+final class RemovalDispatcher {
+    private static final int MAX_PENDING_NOTIFICATIONS = 1 << 16;
+    private static final long RETRY_DELAY = 100;
+    private static final AtomicInteger poolSequence = new AtomicInteger(0);
+
+    private final Queue<RemovalNotification> pendingNotifications;
+    private final AtomicInteger pendingCount;
+    private final AtomicLong droppedCount;
+    private final List<RemovalListener> removalListeners;
+    private final AtomicBoolean dispatchScheduled;
+    private final Executor executor;
+    private final ScheduledExecutorService removalExecutor;
+    private final int batchSize;
+
+    private volatile boolean active;
+
+    /**
+     * @param executor        runs the listeners, or null to run them on the removal pool.
+     * @param removalExecutor is the removal pool, which also schedules the retries of rejected dispatches.
+     */
+    RemovalDispatcher(final Executor executor, final ScheduledExecutorService removalExecutor, final int batchSize) {
+        this.pendingNotifications = new ConcurrentLinkedQueue<>();
+        this.pendingCount = new AtomicInteger(0);
+        this.droppedCount = new AtomicLong(0L);
+        this.removalListeners = new CopyOnWriteArrayList<>();
+        this.dispatchScheduled = new AtomicBoolean(false);
+        this.executor = Util.isUsable(executor) ? executor : removalExecutor;
+        this.removalExecutor = removalExecutor;
+        this.batchSize = Math.max(1, batchSize);
+        this.active = true;
+    }
+
+    static ScheduledThreadPoolExecutor createRemovalExecutor(final int threadCount) {
+        ScheduledThreadPoolExecutor removalExecutor = new ScheduledThreadPoolExecutor(Math.max(1, threadCount), threadFactory(poolSequence.incrementAndGet()));
+
+        removalExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        return removalExecutor;
+    }
+
+    private static ThreadFactory threadFactory(final int poolId) {
+        AtomicInteger threadSequence = new AtomicInteger(0);
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, "cache-removal-" + poolId + "-" + threadSequence.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        };
+    }
+
+    /**
+     * Stops retrying rejected dispatches; dispatches already accepted by the executor still run.
+     */
+    void shutdown() {
+        this.active = false;
+    }
+
+    void addListener(final RemovalListener removalListener) {
+        this.removalListeners.add(removalListener);
+    }
+
+    void removeListener(final RemovalListener removalListener) {
+        this.removalListeners.remove(removalListener);
+    }
+
+    /**
+     * @return the number of notifications dropped because too many were waiting for delivery.
+     */
+    long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    void record(final Cached cachedRecord, final RemovalCause removalCause) {
+        if (this.removalListeners.isEmpty()) {
+            return;
+        }
+
+        if (this.pendingCount.incrementAndGet() > RemovalDispatcher.MAX_PENDING_NOTIFICATIONS) {
+            this.pendingCount.decrementAndGet();
+            this.droppedCount.incrementAndGet();
+        } else {
+            this.pendingNotifications.offer(new RemovalNotification(cachedRecord.getRecordKey(), cachedRecord.getCachedData(), removalCause));
+        }
+
+        this.scheduleDispatch();
+    }
+
+    private void scheduleDispatch() {
+        if (this.dispatchScheduled.compareAndSet(false, true)) {
+            this.submitDispatch();
+        }
+    }
+
+    private void submitDispatch() {
+        try {
+            this.executor.execute(this::dispatch);
+        } catch (RejectedExecutionException ex) {
+            this.retryDispatch();
+        }
+    }
+
+    private void retryDispatch() {
+        try {
+            if (this.active) {
+                this.removalExecutor.schedule(this::submitDispatch, RemovalDispatcher.RETRY_DELAY, TimeUnit.MILLISECONDS);
+
+                return;
+            }
+        } catch (RejectedExecutionException ignored) {
+            // the removal pool is shut down, nothing is left to retry on
+        }
+
+        this.dispatchScheduled.set(false);
+    }
+
+    private void dispatch() {
+        try {
+            List<RemovalNotification> batch = this.nextBatch();
+
+            if (!batch.isEmpty()) {
+                this.deliver(batch);
+            }
+        } finally {
+            this.dispatchScheduled.set(false);
+        }
+
+        if (!this.pendingNotifications.isEmpty()) {
+            this.scheduleDispatch();
+        }
+    }
+
+    private List<RemovalNotification> nextBatch() {
+        List<RemovalNotification> batch = new ArrayList<>();
+        RemovalNotification notification;
+
+        while (batch.size() < this.batchSize && Util.isUsable(notification = this.pendingNotifications.poll())) {
+            this.pendingCount.decrementAndGet();
+            batch.add(notification);
+        }
+
+        return Collections.unmodifiableList(batch);
+    }
+
+    private void deliver(final List<RemovalNotification> batch) {
+        for (RemovalListener removalListener : this.removalListeners) {
+            try {
+                removalListener.onRemoval(batch);
+            } catch (RuntimeException ignored) {
+                // a failing listener must not starve the others
+            }
+        }
+    }
+}
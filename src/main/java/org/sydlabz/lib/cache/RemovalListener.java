@@ -0,0 +1,14 @@
+package org.sydlabz.lib.cache;
+
+import java.util.List;
+
+/**
+ * Receives batches of removed cache records.
+ * <p>
+ * Notifications are delivered asynchronously on the configured removal listener executor, or else on the
+ * removal pool of the cache, never while a bucket is locked; slow listeners should be given an executor. A
+ * listener that throws does not prevent delivery of the batch to the other listeners.
+ */
+public interface RemovalListener {
+    void onRemoval(List<RemovalNotification> notifications);
+}
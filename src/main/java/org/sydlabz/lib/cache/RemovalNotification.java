@@ -0,0 +1,4 @@
+package org.sydlabz.lib.cache;
+
+public record RemovalNotification(String key, Cacheable value, RemovalCause cause) {
+}
@@ -0,0 +1,92 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Approximate eviction for {@link EvictionStrategy#RANDOM}.
+ * <p>
+ * No ordering is maintained on insert or access. On eviction a random region of the bucket's data store is
+ * reached by repeatedly splitting its spliterator, up to {@code sampleSize} records are read from there and the
+ * worst of them by the configured criterion is chosen.
+ */
+final class SampledEviction extends EvictionPolicy {
+    private final DataStore dataStore;
+    private final Comparator<Cached> comparator;
+    private final int sampleSize;
+
+    SampledEviction(final DataStore dataStore, final EvictionStrategy criterion, final int sampleSize) {
+        this.dataStore = dataStore;
+        this.comparator = Cached.getComparator(criterion);
+        this.sampleSize = Math.max(1, sampleSize);
+    }
+
+    @Override
+    void offer(final Cached cachedRecord) {
+    }
+
+    @Override
+    void access(final Cached cachedRecord) {
+    }
+
+    @Override
+    void remove(final Cached cachedRecord) {
+    }
+
+    @Override
+    void remove(final String recordKey) {
+    }
+
+    @Override
+    Cached poll() {
+        if (this.dataStore.isEmpty()) {
+            return null;
+        }
+
+        Cached victim = this.sample(this.randomRegion());
+
+        if (!Util.isUsable(victim)) {
+            victim = this.sample(this.dataStore.spliterator());
+        }
+
+        return victim;
+    }
+
+    private Spliterator<Cached> randomRegion() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Spliterator<Cached> spliterator = this.dataStore.spliterator();
+
+        while (spliterator.estimateSize() > this.sampleSize) {
+            Spliterator<Cached> prefix = spliterator.trySplit();
+
+            if (!Util.isUsable(prefix)) {
+                break;
+            }
+
+            if (random.nextBoolean()) {
+                spliterator = prefix;
+            }
+        }
+
+        return spliterator;
+    }
+
+    private Cached sample(final Spliterator<Cached> spliterator) {
+        Cached[] victim = new Cached[1];
+
+        for (int i = 0; i < this.sampleSize; i++) {
+            boolean advanced = spliterator.tryAdvance(candidate -> {
+                if (!Util.isUsable(victim[0]) || (Util.isUsable(this.comparator) && this.comparator.compare(candidate, victim[0]) < 0)) {
+                    victim[0] = candidate;
+                }
+            });
+
+            if (!advanced) {
+                break;
+            }
+        }
+
+        return victim[0];
+    }
+}
@@ -0,0 +1,55 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Keys of the cached records grouped by an attribute extracted from their data. Records whose attribute is null
+ * are not indexed; any other value, empty strings included, is.
+ */
+final class SecondaryIndex extends EntryIndex {
+    private final Function<? super Cacheable, ?> extractor;
+    private final Map<Object, Set<String>> keysByAttribute;
+
+    SecondaryIndex(final Function<? super Cacheable, ?> extractor) {
+        this.extractor = extractor;
+        this.keysByAttribute = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    void onInsert(final Cached cachedRecord) {
+        Object attribute = this.extract(cachedRecord);
+
+        if (attribute != null) {
+            this.keysByAttribute.compute(attribute, (key, recordKeys) -> TagIndex.add(recordKeys, cachedRecord.getRecordKey()));
+        }
+    }
+
+    @Override
+    void onRemove(final Cached cachedRecord) {
+        Object attribute = this.extract(cachedRecord);
+
+        if (attribute != null) {
+            this.keysByAttribute.computeIfPresent(attribute, (key, recordKeys) -> {
+                recordKeys.remove(cachedRecord.getRecordKey());
+
+                return recordKeys.isEmpty() ? null : recordKeys;
+            });
+        }
+    }
+
+    private Object extract(final Cached cachedRecord) {
+        Cacheable data = cachedRecord.getCachedData();
+
+        return Util.isUsable(data) ? this.extractor.apply(data) : null;
+    }
+
+    Set<String> getKeys(final Object attribute) {
+        Set<String> recordKeys = attribute != null ? this.keysByAttribute.get(attribute) : null;
+
+        return Util.isUsable(recordKeys) ? Collections.unmodifiableSet(recordKeys) : Collections.emptySet();
+    }
+}
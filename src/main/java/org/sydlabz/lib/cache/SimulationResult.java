@@ -0,0 +1,21 @@
+package org.sydlabz.lib.cache;
+
+/**
+ * Outcome of replaying a trace through one cache configuration.
+ *
+ * @param requests  number of reads replayed.
+ * @param hits      reads served from the cache.
+ * @param loads     reads that had to load from the data source.
+ * @param writes    saves and updates reaching the data source.
+ * @param evictions records evicted to make room, i.e. the eviction churn.
+ */
+public record SimulationResult(String policy, long requests, long hits, long loads, long writes, long evictions) {
+    public double hitRatio() {
+        return this.requests == 0 ? 0.0 : (double) this.hits / this.requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s hit ratio %6.2f%%  loads %10d  writes %10d  evictions %10d", this.policy, this.hitRatio() * 100, this.loads, this.writes, this.evictions);
+    }
+}
@@ -0,0 +1,52 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keys of the cached records grouped by tag. Only tagged records take space in the index.
+ */
+final class TagIndex extends EntryIndex {
+    private final Map<String, Set<String>> keysByTag;
+
+    TagIndex() {
+        this.keysByTag = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    void onInsert(final Cached cachedRecord) {
+        for (String tag : cachedRecord.getTags()) {
+            this.keysByTag.compute(tag, (key, recordKeys) -> TagIndex.add(recordKeys, cachedRecord.getRecordKey()));
+        }
+    }
+
+    /**
+     * Adds the key within the compute of its set, so that a concurrent removal cannot unmap the set in between.
+     */
+    static Set<String> add(final Set<String> recordKeys, final String recordKey) {
+        Set<String> presentKeys = Util.isUsable(recordKeys) ? recordKeys : ConcurrentHashMap.newKeySet();
+
+        presentKeys.add(recordKey);
+
+        return presentKeys;
+    }
+
+    @Override
+    void onRemove(final Cached cachedRecord) {
+        for (String tag : cachedRecord.getTags()) {
+            this.keysByTag.computeIfPresent(tag, (key, recordKeys) -> {
+                recordKeys.remove(cachedRecord.getRecordKey());
+
+                return recordKeys.isEmpty() ? null : recordKeys;
+            });
+        }
+    }
+
+    Set<String> getKeys(final String tag) {
+        Set<String> recordKeys = this.keysByTag.get(tag);
+
+        return Util.isUsable(recordKeys) ? Collections.unmodifiableSet(recordKeys) : Collections.emptySet();
+    }
+}
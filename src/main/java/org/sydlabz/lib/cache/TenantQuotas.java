@@ -0,0 +1,173 @@
+package org.sydlabz.lib.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Per-tenant occupancy and reads of a cache shared by several tenants, and the choice of the tenant that has to
+ * give up a record when space is needed.
+ * <p>
+ * A tenant at its maximum share evicts its own records. Otherwise, when the cache is full, the victim is the idle
+ * tenant holding the most records, if any, so that the share of tenants that stopped reading for {@code idleTime}
+ * milliseconds is reclaimed by the active ones; then the tenant exceeding its guaranteed minimum share the most.
+ * Idle tenants holding no record are forgotten.
+ * <p>
+ * The records of each tenant are also counted per bucket, so that evicting from a tenant only scans the buckets
+ * holding some of its records.
+ */
+final class TenantQuotas extends EntryIndex {
+    private final Function<String, String> tenantExtractor;
+    private final CacheConfiguration cacheConfiguration;
+    private final BucketMap bucketMap;
+    private final Map<String, Tenant> tenants;
+    private final long idleTime;
+
+    TenantQuotas(final CacheConfiguration cacheConfiguration, final BucketMap bucketMap) {
+        this.tenantExtractor = cacheConfiguration.getTenantExtractor();
+        this.cacheConfiguration = cacheConfiguration;
+        this.bucketMap = bucketMap;
+        this.tenants = new ConcurrentHashMap<>();
+        this.idleTime = cacheConfiguration.getTenantIdleTime();
+    }
+
+    String tenantOf(final String recordKey) {
+        String tenant = this.tenantExtractor.apply(recordKey);
+
+        return Util.isUsable(tenant) ? tenant : "";
+    }
+
+    void onRead(final String recordKey, final boolean hit) {
+        Tenant tenant = this.tenants.computeIfAbsent(this.tenantOf(recordKey), this::newTenant);
+
+        (hit ? tenant.hits : tenant.misses).incrementAndGet();
+        tenant.lastReadTime = System.currentTimeMillis();
+    }
+
+    private Tenant newTenant(final String name) {
+        return new Tenant(name, this.bucketMap.getBucketCount());
+    }
+
+    @Override
+    void onInsert(final Cached cachedRecord) {
+        String recordKey = cachedRecord.getRecordKey();
+
+        this.tenants.compute(this.tenantOf(recordKey), (name, tenant) -> {
+            Tenant currentTenant = Util.isUsable(tenant) ? tenant : this.newTenant(name);
+
+            currentTenant.occupancy.incrementAndGet();
+            currentTenant.bucketOccupancy.incrementAndGet(this.bucketMap.indexOf(recordKey));
+
+            return currentTenant;
+        });
+    }
+
+    @Override
+    void onRemove(final Cached cachedRecord) {
+        String recordKey = cachedRecord.getRecordKey();
+
+        this.tenants.computeIfPresent(this.tenantOf(recordKey), (name, tenant) -> {
+            tenant.occupancy.decrementAndGet();
+            tenant.bucketOccupancy.decrementAndGet(this.bucketMap.indexOf(recordKey));
+
+            return tenant;
+        });
+    }
+
+    /**
+     * @return true if the tenant holds records in the bucket.
+     */
+    boolean occupies(final String tenant, final int bucketIndex) {
+        Tenant currentTenant = this.tenants.get(tenant);
+
+        return Util.isUsable(currentTenant) && currentTenant.bucketOccupancy.get(bucketIndex) > 0;
+    }
+
+    /**
+     * Chooses the tenant to evict from before a record of the key is inserted.
+     *
+     * @param inserted is true if the record was already inserted.
+     * @return the victim tenant, or null if nothing has to be evicted or no tenant is over its quota.
+     */
+    String selectVictim(final String recordKey, final boolean full, final boolean inserted) {
+        long capacity = this.cacheConfiguration.getCacheSize();
+        String incomingTenant = this.tenantOf(recordKey);
+        Tenant tenant = this.tenants.get(incomingTenant);
+
+        if (Util.isUsable(tenant)) {
+            long occupancy = tenant.occupancy.get() - (inserted ? 1 : 0);
+
+            if (occupancy > 0 && occupancy >= this.cacheConfiguration.getTenantShare(incomingTenant).maxShare() * capacity) {
+                return incomingTenant;
+            }
+        }
+
+        if (!full) {
+            return null;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        String victim = null;
+        double largestExcess = 0.0;
+        String idleVictim = null;
+        long largestIdleOccupancy = 0L;
+
+        for (Tenant candidate : this.tenants.values()) {
+            long occupancy = candidate.occupancy.get();
+
+            if (!this.isIdle(candidate, currentTime)) {
+                double excess = occupancy - this.cacheConfiguration.getTenantShare(candidate.name).minShare() * capacity;
+
+                if (excess > largestExcess) {
+                    largestExcess = excess;
+                    victim = candidate.name;
+                }
+            } else if (occupancy > largestIdleOccupancy) {
+                largestIdleOccupancy = occupancy;
+                idleVictim = candidate.name;
+            } else if (occupancy <= 0) {
+                this.tenants.computeIfPresent(candidate.name, (name, current) -> current.occupancy.get() <= 0 && this.isIdle(current, currentTime) ? null : current);
+            }
+        }
+
+        return Util.isUsable(idleVictim) ? idleVictim : victim;
+    }
+
+    private boolean isIdle(final Tenant tenant, final long currentTime) {
+        return currentTime - tenant.lastReadTime > this.idleTime;
+    }
+
+    List<TenantStatistics> getStatistics() {
+        long currentTime = System.currentTimeMillis();
+        List<TenantStatistics> statistics = new ArrayList<>(this.tenants.size());
+
+        for (Tenant tenant : this.tenants.values()) {
+            statistics.add(new TenantStatistics(tenant.name, tenant.occupancy.get(), tenant.hits.get(), tenant.misses.get(), this.isIdle(tenant, currentTime)));
+        }
+
+        return statistics;
+    }
+
+    private static final class Tenant {
+        private final String name;
+        private final AtomicLong occupancy;
+        private final AtomicIntegerArray bucketOccupancy;
+        private final AtomicLong hits;
+        private final AtomicLong misses;
+
+        private volatile long lastReadTime;
+
+        private Tenant(final String name, final int bucketCount) {
+            this.name = name;
+            this.occupancy = new AtomicLong(0L);
+            this.bucketOccupancy = new AtomicIntegerArray(bucketCount);
+            this.hits = new AtomicLong(0L);
+            this.misses = new AtomicLong(0L);
+            this.lastReadTime = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.sydlabz.lib.cache;
+
+/**
+ * Share of the cache capacity granted to a tenant.
+ *
+ * @param minShare share guaranteed to the tenant while it is active: its records are evicted for other tenants only
+ *                 above it.
+ * @param maxShare share the tenant can never exceed: beyond it, the tenant evicts its own records.
+ */
+public record TenantShare(double minShare, double maxShare) {
+    public TenantShare {
+        if (minShare < 0.0 || maxShare > 1.0 || minShare > maxShare) {
+            throw new IllegalArgumentException("shares must satisfy 0 <= minShare <= maxShare <= 1");
+        }
+    }
+}
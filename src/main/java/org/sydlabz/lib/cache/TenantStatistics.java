@@ -0,0 +1,16 @@
+package org.sydlabz.lib.cache;
+
+/**
+ * Reads and occupancy of one tenant of a cache.
+ *
+ * @param occupancy number of records of the tenant currently cached.
+ * @param idle      whether the tenant has not read anything for the tenant idle time, in which case its guaranteed
+ *                  share is reclaimed by the other tenants.
+ */
+public record TenantStatistics(String tenant, long occupancy, long hits, long misses, boolean idle) {
+    public double hitRatio() {
+        long reads = this.hits + this.misses;
+
+        return reads == 0 ? 0.0 : (double) this.hits / reads;
+    }
+}
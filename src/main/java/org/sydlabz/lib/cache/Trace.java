@@ -0,0 +1,189 @@
+package org.sydlabz.lib.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recorded sequence of cache accesses.
+ * <p>
+ * Keys are deduplicated, so a trace costs one byte and one reference per access. Two file formats are supported:
+ * a text format with one {@code <G|P|R> <key>} access per line, and the binary format written by
+ * {@link TraceFileRecorder}: a {@code CTRC} magic followed by, per access, the operation code, the UTF-8 key length
+ * as a varint and the key bytes. A binary trace ends at its last complete access, so the file of a recorder that
+ * was not closed cleanly can still be read.
+ */
+public final class Trace {
+    static final byte[] MAGIC = {'C', 'T', 'R', 'C'};
+
+    private final byte[] operations;
+    private final String[] keys;
+    private final int length;
+
+    private Trace(final byte[] operations, final String[] keys, final int length) {
+        this.operations = operations;
+        this.keys = keys;
+        this.length = length;
+    }
+
+    public static Trace readText(final Path path) {
+        Builder builder = new Builder();
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                if (line.length() < 3 || line.charAt(1) != ' ') {
+                    throw new IllegalArgumentException("malformed trace line " + lineNumber + " of " + path + ": " + line);
+                }
+
+                try {
+                    builder.add(TraceOperation.of(line.charAt(0)), line.substring(2));
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("malformed trace line " + lineNumber + " of " + path + ": " + ex.getMessage(), ex);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return builder.build();
+    }
+
+    public static Trace readBinary(final Path path) {
+        Builder builder = new Builder();
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            byte[] magic = new byte[Trace.MAGIC.length];
+
+            input.readFully(magic);
+
+            if (!Arrays.equals(magic, Trace.MAGIC)) {
+                throw new IllegalArgumentException("not a binary trace: " + path);
+            }
+
+            int code;
+
+            while ((code = input.read()) >= 0) {
+                byte[] key;
+
+                try {
+                    key = new byte[Trace.readVarInt(input)];
+                    input.readFully(key);
+                } catch (EOFException ex) {
+                    // the last record is torn when the recorder was not closed cleanly
+                    break;
+                }
+
+                builder.add(TraceOperation.of(code), new String(key, StandardCharsets.UTF_8));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return builder.build();
+    }
+
+    private static int readVarInt(final InputStream input) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+            int next = input.read();
+
+            if (next < 0) {
+                throw new EOFException("truncated trace");
+            }
+
+            value |= (next & 0x7F) << shift;
+
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("malformed trace");
+    }
+
+    public void writeText(final Path path) {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < this.length; i++) {
+                writer.write(this.getOperation(i).getCode());
+                writer.write(' ');
+                writer.write(this.keys[i]);
+                writer.newLine();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void writeBinary(final Path path) {
+        try (TraceFileRecorder recorder = new TraceFileRecorder(path)) {
+            for (int i = 0; i < this.length; i++) {
+                recorder.record(this.getOperation(i), this.keys[i]);
+            }
+        }
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    public TraceOperation getOperation(final int index) {
+        return TraceOperation.values()[this.operations[index]];
+    }
+
+    public String getKey(final int index) {
+        return this.keys[index];
+    }
+
+    public static final class Builder {
+        private final Map<String, String> dictionary;
+
+        private byte[] operations;
+        private String[] keys;
+        private int length;
+
+        public Builder() {
+            this.dictionary = new HashMap<>();
+            this.operations = new byte[1024];
+            this.keys = new String[1024];
+            this.length = 0;
+        }
+
+        public Builder add(final TraceOperation operation, final String key) {
+            if (this.length == this.keys.length) {
+                this.operations = Arrays.copyOf(this.operations, this.length * 2);
+                this.keys = Arrays.copyOf(this.keys, this.length * 2);
+            }
+
+            this.operations[this.length] = (byte) operation.ordinal();
+            this.keys[this.length] = this.dictionary.computeIfAbsent(key, value -> value);
+            this.length++;
+
+            return this;
+        }
+
+        public Trace build() {
+            return new Trace(Arrays.copyOf(this.operations, this.length), Arrays.copyOf(this.keys, this.length), this.length);
+        }
+    }
+}
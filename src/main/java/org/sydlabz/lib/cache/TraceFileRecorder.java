@@ -0,0 +1,350 @@
+package org.sydlabz.lib.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends accesses to a binary trace file, see {@link Trace}.
+ * <p>
+ * Each thread encodes its accesses into a buffer of its own, without allocating; full buffers are handed to a
+ * background thread that writes them out, and buffers left partly filled are collected every
+ * {@link #DRAIN_INTERVAL} milliseconds. The accesses of one thread keep their order, those of different threads are
+ * interleaved a buffer at a time. When the disk falls behind by more than {@link #QUEUE_CAPACITY} buffers, further
+ * buffers are dropped and counted rather than blocking the cache. {@link #close()} writes out every buffer.
+ */
+public final class TraceFileRecorder implements TraceRecorder, Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long DRAIN_INTERVAL = 100;
+    private static final AtomicInteger recorderSequence = new AtomicInteger(0);
+
+    private final OutputStream output;
+    private final ThreadLocal<ThreadBuffer> threadBuffers;
+    private final Queue<ThreadBuffer> registeredBuffers;
+    private final BlockingQueue<Chunk> filledChunks;
+    private final Queue<Chunk> freeChunks;
+    private final AtomicLong droppedCount;
+    private final Thread drainer;
+
+    private volatile boolean open;
+    private volatile IOException failure;
+
+    public TraceFileRecorder(final Path path) {
+        try {
+            this.output = new BufferedOutputStream(Files.newOutputStream(path), TraceFileRecorder.BUFFER_SIZE);
+            this.output.write(Trace.MAGIC);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        this.threadBuffers = ThreadLocal.withInitial(this::register);
+        this.registeredBuffers = new ConcurrentLinkedQueue<>();
+        this.filledChunks = new ArrayBlockingQueue<>(TraceFileRecorder.QUEUE_CAPACITY);
+        this.freeChunks = new ConcurrentLinkedQueue<>();
+        this.droppedCount = new AtomicLong(0L);
+        this.open = true;
+        this.drainer = new Thread(this::drain, "trace-recorder-" + TraceFileRecorder.recorderSequence.incrementAndGet());
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    private ThreadBuffer register() {
+        ThreadBuffer threadBuffer = new ThreadBuffer(Thread.currentThread(), this.takeFreeChunk());
+
+        this.registeredBuffers.add(threadBuffer);
+
+        return threadBuffer;
+    }
+
+    @Override
+    public void record(final TraceOperation operation, final String key) {
+        if (this.open) {
+            this.threadBuffers.get().append(operation.getCode(), key);
+        }
+    }
+
+    /**
+     * @return the number of accesses dropped because the background thread fell behind.
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    private Chunk takeFreeChunk() {
+        Chunk chunk = this.freeChunks.poll();
+
+        return Util.isUsable(chunk) ? chunk : new Chunk(TraceFileRecorder.BUFFER_SIZE);
+    }
+
+    private void handOff(final Chunk chunk) {
+        if (!this.filledChunks.offer(chunk)) {
+            this.droppedCount.addAndGet(chunk.count);
+            this.recycle(chunk);
+        }
+    }
+
+    private void recycle(final Chunk chunk) {
+        if (chunk.bytes.length == TraceFileRecorder.BUFFER_SIZE) {
+            chunk.clear();
+            this.freeChunks.offer(chunk);
+        }
+    }
+
+    private void drain() {
+        while (this.open) {
+            try {
+                Chunk chunk = this.filledChunks.poll(TraceFileRecorder.DRAIN_INTERVAL, TimeUnit.MILLISECONDS);
+
+                if (Util.isUsable(chunk)) {
+                    this.write(chunk);
+                } else {
+                    this.collectPartialChunks();
+                    this.flush();
+                }
+            } catch (InterruptedException ex) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Writes out the partly filled buffers, and forgets those of the threads that terminated.
+     */
+    private void collectPartialChunks() {
+        for (ThreadBuffer threadBuffer : this.registeredBuffers) {
+            boolean terminated = !threadBuffer.owner.isAlive();
+            Chunk chunk = threadBuffer.takePartialChunk();
+
+            if (Util.isUsable(chunk)) {
+                this.write(chunk);
+            }
+
+            if (terminated) {
+                this.registeredBuffers.remove(threadBuffer);
+            }
+        }
+    }
+
+    private void write(final Chunk chunk) {
+        if (!Util.isUsable(this.failure)) {
+            try {
+                this.output.write(chunk.bytes, 0, chunk.length);
+            } catch (IOException ex) {
+                this.failure = ex;
+            }
+        }
+
+        this.recycle(chunk);
+    }
+
+    private void flush() {
+        if (!Util.isUsable(this.failure)) {
+            try {
+                this.output.flush();
+            } catch (IOException ex) {
+                this.failure = ex;
+            }
+        }
+    }
+
+    /**
+     * Stops recording, writes out every buffered access and closes the file. Accesses recorded concurrently with the
+     * close may be lost.
+     */
+    @Override
+    public synchronized void close() {
+        if (!this.open) {
+            return;
+        }
+
+        this.open = false;
+
+        try {
+            this.drainer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        Chunk chunk;
+
+        while (Util.isUsable(chunk = this.filledChunks.poll())) {
+            this.write(chunk);
+        }
+
+        this.collectPartialChunks();
+
+        try {
+            this.output.close();
+        } catch (IOException ex) {
+            if (!Util.isUsable(this.failure)) {
+                this.failure = ex;
+            }
+        }
+
+        if (Util.isUsable(this.failure)) {
+            throw new UncheckedIOException(this.failure);
+        }
+    }
+
+    /**
+     * Buffer of one thread. It is only locked by its thread and, now and then, by the background thread collecting
+     * it, so the lock is practically never contended.
+     */
+    private final class ThreadBuffer {
+        private final Thread owner;
+
+        private Chunk chunk;
+
+        private ThreadBuffer(final Thread owner, final Chunk chunk) {
+            this.owner = owner;
+            this.chunk = chunk;
+        }
+
+        private synchronized void append(final char code, final String key) {
+            int keyLength = Chunk.utf8Length(key);
+            int recordLength = 1 + Chunk.varIntLength(keyLength) + keyLength;
+
+            if (recordLength > this.chunk.remaining()) {
+                if (this.chunk.length > 0) {
+                    TraceFileRecorder.this.handOff(this.chunk);
+                    this.chunk = TraceFileRecorder.this.takeFreeChunk();
+                }
+
+                if (recordLength > this.chunk.remaining()) {
+                    Chunk oversizedChunk = new Chunk(recordLength);
+
+                    oversizedChunk.put(code, key, keyLength);
+                    TraceFileRecorder.this.handOff(oversizedChunk);
+
+                    return;
+                }
+            }
+
+            this.chunk.put(code, key, keyLength);
+        }
+
+        /**
+         * @return the chunk of the thread if it holds any access, replaced by an empty one, or null.
+         */
+        private synchronized Chunk takePartialChunk() {
+            if (this.chunk.length == 0) {
+                return null;
+            }
+
+            Chunk partialChunk = this.chunk;
+
+            this.chunk = TraceFileRecorder.this.takeFreeChunk();
+
+            return partialChunk;
+        }
+    }
+
+    private static final class Chunk {
+        private final byte[] bytes;
+
+        private int length;
+        private int count;
+
+        private Chunk(final int capacity) {
+            this.bytes = new byte[capacity];
+            this.length = 0;
+            this.count = 0;
+        }
+
+        private static int utf8Length(final String key) {
+            int utf8Length = 0;
+
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+
+                if (c < 0x80) {
+                    utf8Length += 1;
+                } else if (c < 0x800) {
+                    utf8Length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < key.length() && Character.isLowSurrogate(key.charAt(i + 1))) {
+                    utf8Length += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    utf8Length += 1;
+                } else {
+                    utf8Length += 3;
+                }
+            }
+
+            return utf8Length;
+        }
+
+        private static int varIntLength(final int value) {
+            int varIntLength = 1;
+
+            for (int remaining = value >>> 7; remaining != 0; remaining >>>= 7) {
+                varIntLength++;
+            }
+
+            return varIntLength;
+        }
+
+        private int remaining() {
+            return this.bytes.length - this.length;
+        }
+
+        /**
+         * Encodes the key as UTF-8 the way {@link String#getBytes} does, a lone surrogate becoming {@code '?'}.
+         */
+        private void put(final char code, final String key, final int keyLength) {
+            this.bytes[this.length++] = (byte) code;
+
+            int remaining = keyLength;
+
+            while ((remaining & ~0x7F) != 0) {
+                this.bytes[this.length++] = (byte) ((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+
+            this.bytes[this.length++] = (byte) remaining;
+
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+
+                if (c < 0x80) {
+                    this.bytes[this.length++] = (byte) c;
+                } else if (c < 0x800) {
+                    this.bytes[this.length++] = (byte) (0xC0 | c >> 6);
+                    this.bytes[this.length++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < key.length() && Character.isLowSurrogate(key.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, key.charAt(++i));
+
+                    this.bytes[this.length++] = (byte) (0xF0 | codePoint >> 18);
+                    this.bytes[this.length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    this.bytes[this.length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    this.bytes[this.length++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    this.bytes[this.length++] = '?';
+                } else {
+                    this.bytes[this.length++] = (byte) (0xE0 | c >> 12);
+                    this.bytes[this.length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    this.bytes[this.length++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+
+            this.count++;
+        }
+
+        private void clear() {
+            this.length = 0;
+            this.count = 0;
+        }
+    }
+}
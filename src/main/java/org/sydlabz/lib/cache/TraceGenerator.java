@@ -0,0 +1,83 @@
+package org.sydlabz.lib.cache;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic read traces for {@link CacheSimulator}.
+ */
+public final class TraceGenerator {
+    private TraceGenerator() {
+    }
+
+    /**
+     * Reads whose key popularity follows a Zipf distribution: the i-th most popular key is read with a probability
+     * proportional to {@code 1 / i^exponent}.
+     */
+    public static Trace zipf(final int keyCount, final int length, final double exponent, final long seed) {
+        double[] cumulative = new double[keyCount];
+        double total = 0.0;
+
+        for (int i = 0; i < keyCount; i++) {
+            total += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = total;
+        }
+
+        Random random = new Random(seed);
+        Trace.Builder builder = new Trace.Builder();
+
+        for (int i = 0; i < length; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+
+            builder.add(TraceOperation.GET, TraceGenerator.key("key:", index < 0 ? -index - 1 : index));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Reads sweeping once over keys disjoint from the other generators, as done by batch jobs, wrapping around after
+     * the last key.
+     */
+    public static Trace scan(final int keyCount, final int length) {
+        Trace.Builder builder = new Trace.Builder();
+
+        for (int i = 0; i < length; i++) {
+            builder.add(TraceOperation.GET, TraceGenerator.key("scan:", i % keyCount));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Reads cycling over a fixed set of keys, the worst case of LRU when the set exceeds the cache size.
+     */
+    public static Trace loop(final int loopSize, final int length) {
+        Trace.Builder builder = new Trace.Builder();
+
+        for (int i = 0; i < length; i++) {
+            builder.add(TraceOperation.GET, TraceGenerator.key("key:", i % loopSize));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Concatenates traces, e.g. a Zipf workload interrupted by a scan.
+     */
+    public static Trace concat(final Trace... traces) {
+        Trace.Builder builder = new Trace.Builder();
+
+        for (Trace trace : traces) {
+            for (int i = 0; i < trace.length(); i++) {
+                builder.add(trace.getOperation(i), trace.getKey(i));
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static String key(final String prefix, final int index) {
+        return prefix + index;
+    }
+}
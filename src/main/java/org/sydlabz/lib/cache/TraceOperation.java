@@ -0,0 +1,27 @@
+package org.sydlabz.lib.cache;
+
+public enum TraceOperation {
+    GET('G'),
+    PUT('P'),
+    REMOVE('R');
+
+    private final char code;
+
+    TraceOperation(final char code) {
+        this.code = code;
+    }
+
+    char getCode() {
+        return this.code;
+    }
+
+    static TraceOperation of(final int code) {
+        for (TraceOperation operation : TraceOperation.values()) {
+            if (operation.code == code) {
+                return operation;
+            }
+        }
+
+        throw new IllegalArgumentException("unknown trace operation: " + (char) code);
+    }
+}
@@ -0,0 +1,9 @@
+package org.sydlabz.lib.cache;
+
+/**
+ * Receives every key accessed through a cache, in call order. It is invoked on the calling thread and should do as
+ * little as possible.
+ */
+public interface TraceRecorder {
+    void record(TraceOperation operation, String key);
+}
@@ -2,6 +2,7 @@ package org.sydlabz.lib.cache;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -29,16 +30,39 @@ public final class Util {
         }
 
         int hash = Util.FNV_OFFSET_BASIS_32;
-        char[] content = input.toCharArray();
 
-        for (char value : content) {
-            hash ^= value;
+        for (int i = 0; i < input.length(); i++) {
+            hash ^= input.charAt(i);
             hash *= Util.FNV_PRIME_32;
         }
 
         return hash;
     }
 
+    /**
+     * Seeded variant of {@link #hash(String)}: the seed is folded into the offset basis and the result is mixed so
+     * that each seed gives an unrelated hash of the key, as the perfect hash of {@link FrozenCache} needs.
+     */
+    static int hash(final String input, final int seed) {
+        if (!Util.isUsable(input)) {
+            return Util.ERROR_HASH;
+        }
+
+        int hash = Util.FNV_OFFSET_BASIS_32 ^ (seed * 0x9e3779b9);
+
+        for (int i = 0; i < input.length(); i++) {
+            hash ^= input.charAt(i);
+            hash *= Util.FNV_PRIME_32;
+        }
+
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+
+        return hash ^ (hash >>> 16);
+    }
+
     static boolean isUsable(final Object object) {
         if (object == null) {
             return false;
@@ -49,8 +73,8 @@ public final class Util {
         return true;
     }
 
-    static String toJson(final Object object) {
-        return Util.GSON.toJson(object);
+    static void toJson(final Object object, final JsonWriter jsonWriter) {
+        Util.GSON.toJson(object, object.getClass(), jsonWriter);
     }
 
     static String time(long time) {
@@ -0,0 +1,11 @@
+package org.sydlabz.lib.cache;
+
+/**
+ * Progress of a cache warm-up.
+ *
+ * @param requested keys taken from the key stream so far.
+ * @param loaded    keys found in the data source.
+ * @param inserted  records inserted into the cache; keys already cached are kept as they are.
+ */
+public record WarmUpProgress(long requested, long loaded, long inserted) {
+}
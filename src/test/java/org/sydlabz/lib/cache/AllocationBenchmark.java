@@ -0,0 +1,98 @@
+package org.sydlabz.lib.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Measures the bytes allocated per cache hit and update, for every eviction strategy. Surefire runs it in the test
+ * phase through {@link #testHitPathsStayWithinBudget()}, so an allocation regression fails the build.
+ */
+public class AllocationBenchmark {
+    private static final int RECORD_COUNT = 10000;
+    private static final int WARM_UP_OPERATIONS = 2000000;
+    private static final int MEASURED_OPERATIONS = 1000000;
+
+    private static final double GET_IF_PRESENT_BUDGET = 0.0;
+    private static final double GET_BUDGET = 16.0;
+    private static final double PUT_UPDATE_BUDGET = 0.0;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        if (!run().isEmpty()) {
+            println("Allocation regression detected");
+            System.exit(1);
+        }
+    }
+
+    public void testHitPathsStayWithinBudget() {
+        List<String> regressions = run();
+
+        if (!regressions.isEmpty()) {
+            throw new AssertionError("allocation regression: " + regressions);
+        }
+    }
+
+    /**
+     * @return the operations that went over their budget.
+     */
+    private static List<String> run() {
+        List<String> regressions = new ArrayList<>();
+
+        println("Record Count: " + RECORD_COUNT);
+        println("Measured Operations: " + MEASURED_OPERATIONS);
+
+        for (EvictionStrategy evictionStrategy : EvictionStrategy.values()) {
+            CacheConfiguration cacheConfiguration = new CacheConfiguration.Builder()
+                    .cacheSize(RECORD_COUNT * 2)
+                    .evictionStrategy(evictionStrategy).build();
+            Cache cache = new Cache("allocation-benchmark", new TestDataSource(), cacheConfiguration);
+            String[] keys = new String[RECORD_COUNT];
+            Cacheable[] values = new Cacheable[RECORD_COUNT];
+
+            for (int i = 0; i < RECORD_COUNT; i++) {
+                keys[i] = "key-" + i;
+                values[i] = new TestData(keys[i]);
+                cache.put(keys[i], values[i]);
+            }
+
+            measure(evictionStrategy + " Cache.getIfPresent(key) hit", GET_IF_PRESENT_BUDGET, i -> cache.getIfPresent(keys[i % RECORD_COUNT]), regressions);
+            measure(evictionStrategy + " Cache.get(key) hit", GET_BUDGET, i -> cache.get(keys[i % RECORD_COUNT]), regressions);
+            measure(evictionStrategy + " Cache.put(key) update", PUT_UPDATE_BUDGET, i -> cache.put(keys[i % RECORD_COUNT], values[(i + 1) % RECORD_COUNT]), regressions);
+
+            cache.shutdown();
+        }
+
+        return regressions;
+    }
+
+    /**
+     * Runs the operation on the current thread and compares the bytes it allocated per call with the budget.
+     */
+    private static void measure(final String name, final double budget, final IntConsumer operation, final List<String> regressions) {
+        for (int i = 0; i < WARM_UP_OPERATIONS; i++) {
+            operation.accept(i);
+        }
+
+        long allocatedBefore = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+
+        for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+            operation.accept(i);
+        }
+
+        double bytesPerOperation = (double) (THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore) / MEASURED_OPERATIONS;
+        boolean passed = bytesPerOperation <= budget + 0.5;
+
+        println(name + ": " + bytesPerOperation + " bytes per operation (budget " + budget + ")" + (passed ? "" : " REGRESSION"));
+
+        if (!passed) {
+            regressions.add(name);
+        }
+    }
+
+    private static void println(Object text) {
+        System.out.println(text);
+    }
+}
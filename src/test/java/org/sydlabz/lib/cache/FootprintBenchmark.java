@@ -0,0 +1,136 @@
+package org.sydlabz.lib.cache;
+
+import java.lang.ref.Reference;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FootprintBenchmark {
+    private static final int RECORD_COUNT = 1000000;
+    private static final int BUCKET_COUNT = Util.BUCKET_COUNT;
+    private static final int PRIORITY_QUEUE_LIMIT = 100;
+
+    public static void main(String[] args) {
+        String[] keys = new String[RECORD_COUNT];
+        Cacheable[] values = new Cacheable[RECORD_COUNT];
+
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            keys[i] = "key-" + i;
+            values[i] = new TestData(keys[i]);
+        }
+
+        println("Record Count: " + RECORD_COUNT);
+        println("Bucket Count: " + BUCKET_COUNT);
+
+        long baseline = usedMemory();
+        Object legacyLayout = legacyLayout(keys, values);
+        long legacyBytes = usedMemory() - baseline;
+
+        Reference.reachabilityFence(legacyLayout);
+        legacyLayout = null;
+
+        baseline = usedMemory();
+        Object currentLayout = currentLayout(keys, values);
+        long currentBytes = usedMemory() - baseline;
+
+        Reference.reachabilityFence(currentLayout);
+
+        println("ConcurrentHashMap<String, Cached> + Cached with three longs + eviction queue: " + (double) legacyBytes / RECORD_COUNT + " bytes per entry");
+        println("DataStore + Cached with packed access state + eviction queue: " + (double) currentBytes / RECORD_COUNT + " bytes per entry");
+    }
+
+    /**
+     * Per bucket, the map, the records and the FIFO eviction queue as they were before the DataStore.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object legacyLayout(final String[] keys, final Cacheable[] values) {
+        Map<String, LegacyCached>[] buckets = new Map[BUCKET_COUNT];
+        PriorityQueue<LegacyCached>[] priorityQueues = new PriorityQueue[BUCKET_COUNT];
+        Queue<LegacyCached>[] waitingQueues = new Queue[BUCKET_COUNT];
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new ConcurrentHashMap<>();
+            priorityQueues[i] = new PriorityQueue<>((first, second) -> Long.compare(first.createdTime, second.createdTime));
+            waitingQueues[i] = new LinkedList<>();
+        }
+
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            int bucket = i % BUCKET_COUNT;
+            LegacyCached record = new LegacyCached(keys[i], values[i]);
+
+            buckets[bucket].put(keys[i], record);
+
+            if (priorityQueues[bucket].size() < PRIORITY_QUEUE_LIMIT) {
+                priorityQueues[bucket].offer(record);
+            } else {
+                waitingQueues[bucket].offer(record);
+            }
+        }
+
+        return new Object[]{buckets, priorityQueues, waitingQueues};
+    }
+
+    private static Object currentLayout(final String[] keys, final Cacheable[] values) {
+        DataStore[] buckets = new DataStore[BUCKET_COUNT];
+        EvictionPolicy[] evictionQueues = new EvictionPolicy[BUCKET_COUNT];
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new DataStore();
+            evictionQueues[i] = new EvictionQueue(EvictionStrategy.FIFO);
+        }
+
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            Cached record = new Cached(keys[i], values[i]);
+
+            buckets[i % BUCKET_COUNT].put(keys[i], record);
+            evictionQueues[i % BUCKET_COUNT].offer(record);
+        }
+
+        return new Object[]{buckets, evictionQueues};
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void println(Object text) {
+        System.out.println(text);
+    }
+
+    /**
+     * Field layout of a record before its access time and count were packed together.
+     */
+    private static final class LegacyCached {
+        private static final String[] NO_TAGS = new String[0];
+
+        private final String recordKey;
+        private final String[] tags;
+        private final Cacheable cachedData;
+        private final long createdTime;
+        private final long lastAccessedTime;
+        private final long accessCount;
+
+        private LegacyCached(final String recordKey, final Cacheable cachedData) {
+            this.recordKey = recordKey;
+            this.tags = LegacyCached.NO_TAGS;
+            this.cachedData = cachedData;
+            this.createdTime = System.currentTimeMillis();
+            this.lastAccessedTime = this.createdTime;
+            this.accessCount = 1L;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.sydlabz.lib.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class GroupCommitterTest {
+    private static final int WRITER_COUNT = 8;
+    private static final long TIMEOUT = 10;
+    private static final long ARRIVAL_GAP = 50;
+
+    public void testBatchCommitsInArrivalOrder() throws Exception {
+        RecordingDataSource dataSource = new RecordingDataSource(false);
+        GroupCommitter groupCommitter = new GroupCommitter(dataSource, 5_000, 5);
+        List<Throwable> failures = writeInOrder(groupCommitter, new String[]{"a", "b", "a", "c", "a"}, new boolean[]{false, false, true, true, false});
+
+        check(failures.equals(Collections.nCopies(5, null)), "a write failed: " + failures);
+        check(dataSource.calls.equals(List.of("saveAll [a=a-0, b=b-1]", "updateAll [a=a-2, c=c-3]", "saveAll [a=a-4]")), "unexpected calls: " + dataSource.calls);
+        check(new TestData("a-4").equals(dataSource.load("a")), "the last write of a key did not win");
+    }
+
+    public void testFailedRunFailsOnlyTheWritesItLeftUncommitted() throws Exception {
+        RecordingDataSource dataSource = new RecordingDataSource(true);
+        GroupCommitter groupCommitter = new GroupCommitter(dataSource, 5_000, 4);
+        List<Throwable> failures = writeInOrder(groupCommitter, new String[]{"a", "b", "c", "d"}, new boolean[]{false, false, true, false});
+
+        check(failures.get(0) == null && failures.get(1) == null, "a committed write failed: " + failures);
+        check(failures.get(2) instanceof IllegalStateException && failures.get(3) instanceof IllegalStateException, "an uncommitted write succeeded: " + failures);
+        check(dataSource.calls.equals(List.of("saveAll [a=a-0, b=b-1]", "updateAll [c=c-2]")), "unexpected calls: " + dataSource.calls);
+    }
+
+    public void testErrorFromSaveAllReleasesEveryWriter() throws Exception {
+        AtomicBoolean failed = new AtomicBoolean(false);
+        DataSource dataSource = new TestDataSource() {
+            @Override
+            public void saveAll(final Map<String, Cacheable> data) {
+                if (failed.compareAndSet(false, true)) {
+                    throw new AssertionError("saveAll failed");
+                }
+
+                super.saveAll(data);
+            }
+        };
+        GroupCommitter groupCommitter = new GroupCommitter(dataSource, 50, WRITER_COUNT);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITER_COUNT);
+
+        try {
+            List<Future<Throwable>> results = new ArrayList<>();
+
+            for (int i = 0; i < WRITER_COUNT; i++) {
+                String key = "key-" + i;
+
+                results.add(executor.submit(() -> write(groupCommitter, key, false)));
+            }
+
+            int errorCount = 0;
+
+            for (Future<Throwable> result : results) {
+                if (result.get(TIMEOUT, TimeUnit.SECONDS) instanceof AssertionError) {
+                    errorCount++;
+                }
+            }
+
+            check(errorCount > 0, "no writer got the error of the failed batch");
+            check(executor.submit(() -> write(groupCommitter, "key-after", false)).get(TIMEOUT, TimeUnit.SECONDS) == null, "the batch after the error failed");
+            check(dataSource.load("key-after") != null, "the batch after the error was not saved");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts one writer per key, {@link #ARRIVAL_GAP} milliseconds apart, so that they join the batch in order.
+     *
+     * @return what each write threw, or null.
+     */
+    private static List<Throwable> writeInOrder(final GroupCommitter groupCommitter, final String[] keys, final boolean[] updates) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(keys.length);
+
+        try {
+            List<Future<Throwable>> results = new ArrayList<>();
+
+            for (int i = 0; i < keys.length; i++) {
+                String key = keys[i];
+                String value = key + "-" + i;
+                boolean isUpdate = updates[i];
+
+                results.add(executor.submit(() -> write(groupCommitter, key, value, isUpdate)));
+                Thread.sleep(ARRIVAL_GAP);
+            }
+
+            List<Throwable> failures = new ArrayList<>();
+
+            for (Future<Throwable> result : results) {
+                failures.add(result.get(TIMEOUT, TimeUnit.SECONDS));
+            }
+
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Throwable write(final GroupCommitter groupCommitter, final String key, final boolean isUpdate) {
+        return write(groupCommitter, key, key, isUpdate);
+    }
+
+    /**
+     * @return what the write threw, or null.
+     */
+    private static Throwable write(final GroupCommitter groupCommitter, final String key, final String value, final boolean isUpdate) {
+        try {
+            groupCommitter.write(key, new TestData(value), isUpdate);
+
+            return null;
+        } catch (RuntimeException | Error ex) {
+            return ex;
+        }
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Records every batched call, in order; updates fail if asked to.
+     */
+    private static final class RecordingDataSource extends TestDataSource {
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        private final boolean failUpdates;
+
+        private RecordingDataSource(final boolean failUpdates) {
+            this.failUpdates = failUpdates;
+        }
+
+        @Override
+        public void saveAll(final Map<String, Cacheable> data) {
+            this.calls.add("saveAll " + describe(data));
+            super.saveAll(data);
+        }
+
+        @Override
+        public void updateAll(final Map<String, Cacheable> data) {
+            this.calls.add("updateAll " + describe(data));
+
+            if (this.failUpdates) {
+                throw new IllegalStateException("updateAll failed");
+            }
+
+            data.forEach(this::save);
+        }
+
+        private static String describe(final Map<String, Cacheable> data) {
+            List<String> entries = new ArrayList<>();
+
+            data.forEach((key, value) -> entries.add(key + "=" + ((TestData) value).data()));
+
+            return entries.toString();
+        }
+    }
+}
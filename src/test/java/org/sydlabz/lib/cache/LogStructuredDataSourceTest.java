@@ -0,0 +1,195 @@
+package org.sydlabz.lib.cache;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class LogStructuredDataSourceTest {
+    private static final int RECORD_COUNT = 40;
+    private static final long SEGMENT_SIZE = 256;
+
+    public void testTornTailOfActiveSegmentIsTruncatedOnReopen() throws IOException {
+        Path directory = Files.createTempDirectory("log-data-source");
+
+        try {
+            writeRecords(directory, "value-");
+
+            Path activeSegment = last(segments(directory));
+            long validSize = Files.size(activeSegment);
+
+            try (RandomAccessFile file = new RandomAccessFile(activeSegment.toFile(), "rw")) {
+                file.seek(validSize);
+                file.write(new byte[]{0, 0, 0, 1, 0, 0, 0});
+            }
+
+            LogStructuredDataSource dataSource = open(directory);
+
+            try {
+                checkRecords(dataSource, RECORD_COUNT, "value-");
+                check(Files.size(activeSegment) == validSize, "the torn tail was not truncated");
+                dataSource.save("key-after", new TestData("value-after"));
+            } finally {
+                dataSource.close();
+            }
+
+            dataSource = open(directory);
+
+            try {
+                check(new TestData("value-after").equals(dataSource.load("key-after")), "a record written after the recovery was lost");
+            } finally {
+                dataSource.close();
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    public void testCorruptLastRecordOfActiveSegmentIsTruncatedOnReopen() throws IOException {
+        Path directory = Files.createTempDirectory("log-data-source");
+
+        try {
+            writeRecords(directory, "value-");
+
+            List<Path> segments = segments(directory);
+
+            check(segments.size() > 2, "the records do not span sealed segments");
+            corruptLastByte(last(segments));
+
+            LogStructuredDataSource dataSource = open(directory);
+
+            try {
+                checkRecords(dataSource, RECORD_COUNT - 1, "value-");
+                check(dataSource.load("key-" + (RECORD_COUNT - 1)) == null, "the corrupt record was served");
+            } finally {
+                dataSource.close();
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    public void testCorruptSealedSegmentFailsTheStart() throws IOException {
+        Path directory = Files.createTempDirectory("log-data-source");
+
+        try {
+            writeRecords(directory, "value-");
+
+            Path sealedSegment = segments(directory).get(0);
+            long size = Files.size(sealedSegment);
+
+            corruptLastByte(sealedSegment);
+
+            try {
+                open(directory).close();
+
+                throw new AssertionError("a corrupt sealed segment was accepted");
+            } catch (UncheckedIOException expected) {
+                check(Files.size(sealedSegment) == size, "the sealed segment was truncated");
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    public void testCompactionKeepsTheLatestRecords() throws IOException {
+        Path directory = Files.createTempDirectory("log-data-source");
+
+        try {
+            LogStructuredDataSource dataSource = open(directory);
+
+            try {
+                for (int i = 0; i < RECORD_COUNT; i++) {
+                    dataSource.save("key-" + i, new TestData("value-" + i));
+                }
+
+                for (int i = 0; i < RECORD_COUNT; i++) {
+                    dataSource.save("key-" + i, new TestData("latest-" + i));
+                }
+
+                Path firstSegment = segments(directory).get(0);
+
+                dataSource.compact();
+
+                check(!Files.exists(firstSegment), "the overwritten segment was not compacted");
+                checkRecords(dataSource, RECORD_COUNT, "latest-");
+            } finally {
+                dataSource.close();
+            }
+
+            dataSource = open(directory);
+
+            try {
+                checkRecords(dataSource, RECORD_COUNT, "latest-");
+            } finally {
+                dataSource.close();
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static LogStructuredDataSource open(final Path directory) {
+        return new LogStructuredDataSource.Builder(directory, new JsonCodec(TestData.class))
+                .segmentSize(SEGMENT_SIZE)
+                .syncInterval(60_000)
+                .compactionInterval(60_000).build();
+    }
+
+    private static void writeRecords(final Path directory, final String valuePrefix) {
+        LogStructuredDataSource dataSource = open(directory);
+
+        try {
+            for (int i = 0; i < RECORD_COUNT; i++) {
+                dataSource.save("key-" + i, new TestData(valuePrefix + i));
+            }
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    private static void checkRecords(final LogStructuredDataSource dataSource, final int count, final String valuePrefix) {
+        for (int i = 0; i < count; i++) {
+            check(new TestData(valuePrefix + i).equals(dataSource.load("key-" + i)), "key-" + i + " was not recovered");
+        }
+    }
+
+    private static void corruptLastByte(final Path segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(file.length() - 1);
+
+            int lastByte = file.read();
+
+            file.seek(file.length() - 1);
+            file.write(lastByte ^ 0xFF);
+        }
+    }
+
+    private static List<Path> segments(final Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.sorted().toList();
+        }
+    }
+
+    private static Path last(final List<Path> paths) {
+        return paths.get(paths.size() - 1);
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package org.sydlabz.lib.cache;
 
 import javax.management.timer.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Random;
 import java.util.Vector;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 public class Main {
     private static final int CACHE_SIZE = 10000000;
@@ -21,7 +26,8 @@ public class Main {
                 .invalidationLifeTime(200)
                 .invalidationFrequency(Timer.ONE_HOUR)
                 .cacheSize(CACHE_SIZE).build();
-        TestDataSource dataSource = new TestDataSource();
+        Path directory = createDirectory();
+        LogStructuredDataSource dataSource = new LogStructuredDataSource.Builder(directory, new JsonCodec(TestData.class)).build();
         Cache cache = new Cache("test-cache", dataSource, cacheConfiguration);
         Vector<String> keyStore = new Vector<>();
         double[] time;
@@ -47,6 +53,28 @@ public class Main {
         println("Average of Cache.remove(key): " + time[0] + " nanoseconds / " + time[1] + " milliseconds");
 
         cache.shutdown();
+        dataSource.close();
+        deleteDirectory(directory);
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("cache-benchmark");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                Files.delete(path);
+            }
+
+            Files.delete(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 
     private static double[] doPutOperations(Cache cache, Vector<String> keyStore) {